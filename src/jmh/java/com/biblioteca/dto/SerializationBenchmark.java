@@ -0,0 +1,93 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.entity.LoanStatus;
+import com.biblioteca.entity.UserStatus;
+import com.biblioteca.entity.Users;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialização das respostas da API com o mesmo ObjectMapper que o Spring Boot configura
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private LoanResponseDTO loan;
+    private List<LoanResponseDTO> loanPage;
+    private Book book;
+    private Users user;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        loan = loan(1001L);
+        // Tamanho padrão das páginas da API
+        loanPage = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            loanPage.add(loan(id));
+        }
+
+        book = new Book();
+        book.setId(42L);
+        book.setTitle("Memórias Póstumas de Brás Cubas");
+        book.setAuthor("Machado de Assis");
+        book.setIsbn("978-8508127597");
+        book.setPublicationYear(1881);
+        book.setTotalQuantity(5);
+        book.setAvailableQuantity(3);
+        book.setStatus(BookStatus.DISPONIVEL);
+        book.setVersion(4L);
+
+        user = new Users();
+        user.setId(7L);
+        user.setName("Maria da Silva");
+        user.setEmail("maria.silva@example.com");
+        user.setCpf("123.456.789-09");
+        user.setRegisterDate(LocalDate.of(2024, 8, 1));
+        user.setStatus(UserStatus.ATIVO);
+        user.setActiveLoanCount(2);
+        user.setVersion(3L);
+    }
+
+    private static LoanResponseDTO loan(long id) {
+        return new LoanResponseDTO(id, 42L, "Memórias Póstumas de Brás Cubas", 7L, "Maria da Silva",
+                LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 24), LoanStatus.ATIVO);
+    }
+
+    @Benchmark
+    public byte[] loanResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loan);
+    }
+
+    @Benchmark
+    public byte[] loanResponsePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loanPage);
+    }
+
+    @Benchmark
+    public byte[] book() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] user() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+}
@@ -0,0 +1,96 @@
+package com.biblioteca.exception;
+
+import com.biblioteca.controller.BookController;
+import com.biblioteca.dto.ErrorResponseDTO;
+import com.biblioteca.entity.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.concurrent.TimeUnit;
+
+// Custo de uma requisição recusada: criar a exceção (o stack trace cresce com a profundidade da pilha) e montar
+// a resposta no GlobalExceptionHandler. depth simula as chamadas entre o controller e a regra que recusou.
+// illegalState é a recusa de empréstimo como era antes; businessRule é a atual, sem stack trace.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlobalExceptionHandlerBenchmark {
+
+    @Param({"1", "100"})
+    private int depth;
+
+    private GlobalExceptionHandler handler;
+    private MethodParameter createBookParameter;
+    private Book book;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        createBookParameter = new MethodParameter(BookController.class.getMethod("createBook", Book.class), 0);
+        book = new Book();
+        book.setTitle("A");
+    }
+
+    @Benchmark
+    public ResponseEntity<String> resourceNotFound() {
+        try {
+            throwAt(depth, () -> new ResourceNotFoundException("Livro não encontrado com ID: 42"));
+            throw new AssertionError();
+        } catch (ResourceNotFoundException e) {
+            return handler.handleResourceNotFoundException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<String> illegalState() {
+        try {
+            throwAt(depth, () -> new IllegalStateException("Usuário atingiu o limite de 3 empréstimos ativos."));
+            throw new AssertionError();
+        } catch (IllegalStateException e) {
+            return handler.handleIllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponseDTO> businessRule() {
+        try {
+            throwAt(depth, () -> new BusinessRuleException(BusinessError.LIMIT_EXCEEDED));
+            throw new AssertionError();
+        } catch (BusinessRuleException e) {
+            return handler.handleBusinessRuleException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<String> validation() {
+        try {
+            throwAt(depth, () -> {
+                BeanPropertyBindingResult result = new BeanPropertyBindingResult(book, "book");
+                result.rejectValue("title", "Size", "O título deve ter entre 2 e 100 caracteres.");
+                result.rejectValue("isbn", "NotNull", "O campo isbn não pode ser nulo");
+                return new MethodArgumentNotValidException(createBookParameter, result);
+            });
+            throw new AssertionError();
+        } catch (MethodArgumentNotValidException e) {
+            return handler.handleValidationExceptions(e);
+        }
+    }
+
+    private interface ExceptionFactory<E extends Exception> {
+        E create();
+    }
+
+    private static <E extends Exception> void throwAt(int depth, ExceptionFactory<E> factory) throws E {
+        if (depth > 1) {
+            throwAt(depth - 1, factory);
+            return;
+        }
+        throw factory.create();
+    }
+}
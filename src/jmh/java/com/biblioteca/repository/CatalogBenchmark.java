@@ -0,0 +1,121 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.BibliotecaApiApplication;
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.web.PagedModel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// GET /api/books antes e depois da projeção: a página de entidades Book (findAll com a Specification) contra a de
+// BookSummaryDTO (findCatalog), cada uma serializada como o controller faz (PagedModel, serialization-mode=via-dto).
+// Os livros têm histórico de empréstimos grande, que a página de entidades não pode carregar nem serializar.
+// O tamanho em bytes de cada página é impresso no início da execução; -prof gc mostra o que cada uma aloca.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+    private static final int BOOKS = 20_000;
+    private static final int USERS = 1_000;
+    private static final int LOANS = 1_000_000;
+    private static final Sort CATALOG_SORT = Sort.by("title", "id");
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    // TODOS é o GET /api/books sem filtro; DISPONIVEL filtra pelo status
+    @Param({"TODOS", "DISPONIVEL"})
+    private String status;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private TransactionTemplate readOnly;
+    private ObjectMapper objectMapper;
+    private Specification<Book> catalog;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        context = new SpringApplicationBuilder(BibliotecaApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .properties("spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run();
+        bookRepository = context.getBean(BookRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        // BookService.findBooks roda em uma transação somente leitura
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        catalog = BookSpecifications.catalog(status.equals("TODOS") ? null : BookStatus.valueOf(status), null, null, null);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into book (title, author, isbn, publication_year, total_quantity, available_quantity, status, version) " +
+                "select 'Livro ' || r.\"X\", 'Autor ' || mod(r.\"X\", 500), 'ISBN-' || r.\"X\", 1900 + mod(r.\"X\", 120), 3, " +
+                "case when mod(r.\"X\", 10) = 0 then 0 else 3 end, " +
+                "case when mod(r.\"X\", 10) = 0 then 'INDISPONIVEL' else 'DISPONIVEL' end, 0 " +
+                "from system_range(1, " + BOOKS + ") r");
+        jdbcTemplate.update("insert into users (name, email, cpf, register_date, status, active_loan_count, version) " +
+                "select 'Usuário ' || r.\"X\", 'usuario' || r.\"X\" || '@example.com', lpad(r.\"X\", 11, '0'), current_date, 'ATIVO', 0, 0 " +
+                "from system_range(1, " + USERS + ") r");
+        // 50 empréstimos devolvidos por livro
+        jdbcTemplate.update("insert into loan (user_id, book_id, loan_date, expected_return_date, return_date, status) " +
+                "select mod(r.\"X\", " + USERS + ") + 1, mod(r.\"X\", " + BOOKS + ") + 1, " +
+                "current_date - 30, current_date - 16, current_date - 20, 'DEVOLVIDO' " +
+                "from system_range(1, " + LOANS + ") r");
+        // Atualiza as estatísticas do H2 depois da carga; sem isso as primeiras iterações ainda escolhem planos ruins
+        jdbcTemplate.execute("analyze");
+
+        Pageable first = PageRequest.of(0, pageSize, CATALOG_SORT);
+        System.out.printf("%nPágina de %d livros (%s): entidades %d bytes, projeção %d bytes%n", pageSize, status,
+                serialize(readOnly.execute(tx -> bookRepository.findAll(catalog, first))).length,
+                serialize(readOnly.execute(tx -> bookRepository.findCatalog(catalog, first))).length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private Pageable randomPage() {
+        return PageRequest.of(ThreadLocalRandom.current().nextInt(50), pageSize, CATALOG_SORT);
+    }
+
+    private byte[] serialize(Page<?> page) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new PagedModel<>(page));
+    }
+
+    // Como antes da projeção: entidades gerenciadas na transação, serializadas depois dela
+    @Benchmark
+    public byte[] entityPage() throws JsonProcessingException {
+        Pageable pageable = randomPage();
+        Page<Book> page = readOnly.execute(tx -> bookRepository.findAll(catalog, pageable));
+        return serialize(page);
+    }
+
+    @Benchmark
+    public byte[] projectionPage() throws JsonProcessingException {
+        Pageable pageable = randomPage();
+        Page<BookSummaryDTO> page = readOnly.execute(tx -> bookRepository.findCatalog(catalog, pageable));
+        return serialize(page);
+    }
+}
@@ -0,0 +1,126 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.BibliotecaApiApplication;
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.dto.LoanResponseDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.entity.Loan;
+import com.biblioteca.entity.LoanStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Ida e volta ao banco pelos repositórios, com o H2 em memória do perfil h2 (o mesmo dos testes @DataJpaTest).
+// Sem rede, o número mede o custo do Hibernate e do driver; contra o PostgreSQL some-se a latência da conexão.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+    private static final int BOOKS = 10_000;
+    private static final int USERS = 2_000;
+    private static final int LOANS = 20_000;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private UserRepository userRepository;
+    private LoanRepository loanRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BibliotecaApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .properties("spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run();
+        bookRepository = context.getBean(BookRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into book (title, author, isbn, publication_year, total_quantity, available_quantity, status, version) " +
+                "select 'Livro ' || r.\"X\", 'Autor ' || mod(r.\"X\", 500), 'ISBN-' || r.\"X\", 1900 + mod(r.\"X\", 120), 3, " +
+                "case when mod(r.\"X\", 10) = 0 then 0 else 3 end, " +
+                "case when mod(r.\"X\", 10) = 0 then 'INDISPONIVEL' else 'DISPONIVEL' end, 0 " +
+                "from system_range(1, " + BOOKS + ") r");
+        jdbcTemplate.update("insert into users (name, email, cpf, register_date, status, active_loan_count, version) " +
+                "select 'Usuário ' || r.\"X\", 'usuario' || r.\"X\" || '@example.com', lpad(r.\"X\", 11, '0'), current_date, 'ATIVO', 0, 0 " +
+                "from system_range(1, " + USERS + ") r");
+        jdbcTemplate.update("insert into loan (user_id, book_id, loan_date, expected_return_date, return_date, status) " +
+                "select mod(r.\"X\", " + USERS + ") + 1, mod(r.\"X\", " + BOOKS + ") + 1, " +
+                "current_date - 30, current_date - 16, current_date - 20, 'DEVOLVIDO' " +
+                "from system_range(1, " + LOANS + ") r");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private static long randomId(int max) {
+        return ThreadLocalRandom.current().nextLong(1, max + 1);
+    }
+
+    @Benchmark
+    public Optional<Book> findBookById() {
+        return bookRepository.findById(randomId(BOOKS));
+    }
+
+    @Benchmark
+    public Page<BookSummaryDTO> findCatalogPage() {
+        int page = ThreadLocalRandom.current().nextInt(50);
+        return bookRepository.findCatalog(BookSpecifications.catalog(BookStatus.DISPONIVEL, null, null, null),
+                PageRequest.of(page, 20, Sort.by("title")));
+    }
+
+    @Benchmark
+    public List<LoanResponseDTO> findLoansByUser() {
+        return loanRepository.findResponsesByUserId(randomId(USERS));
+    }
+
+    @Benchmark
+    public List<Object[]> countLoansByUsersPage() {
+        long first = randomId(USERS - 20);
+        List<Long> userIds = new ArrayList<>(20);
+        for (long id = first; id < first + 20; id++) {
+            userIds.add(id);
+        }
+        return loanRepository.countLoansByUsers(userIds);
+    }
+
+    // INSERT do empréstimo com flush e rollback: mede a escrita sem fazer a tabela crescer entre as iterações
+    @Benchmark
+    public Long insertLoan() {
+        return transactionTemplate.execute(status -> {
+            Loan loan = new Loan();
+            loan.setBook(bookRepository.getReferenceById(randomId(BOOKS)));
+            loan.setUser(userRepository.getReferenceById(randomId(USERS)));
+            loan.setLoanDate(LocalDate.now());
+            loan.setExpectedReturnDate(LocalDate.now().plusDays(14));
+            loan.setStatus(LoanStatus.ATIVO);
+            loanRepository.saveAndFlush(loan);
+            status.setRollbackOnly();
+            return loan.getId();
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.LoanResponseDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.Loan;
+import com.biblioteca.entity.LoanStatus;
+import com.biblioteca.entity.Users;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanServiceBenchmark {
+
+    private LoanService loanService;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        loanService = new LoanService();
+
+        Book book = new Book();
+        book.setId(42L);
+        book.setTitle("Memórias Póstumas de Brás Cubas");
+        Users user = new Users();
+        user.setId(7L);
+        user.setName("Maria da Silva");
+
+        loan = new Loan();
+        loan.setId(1001L);
+        loan.setBook(book);
+        loan.setUser(user);
+        loan.setLoanDate(LocalDate.of(2025, 3, 10));
+        loan.setExpectedReturnDate(LocalDate.of(2025, 3, 24));
+        loan.setStatus(LoanStatus.ATIVO);
+    }
+
+    @Benchmark
+    public LoanResponseDTO convertToResponseDTO() {
+        return loanService.convertToResponseDTO(loan);
+    }
+}
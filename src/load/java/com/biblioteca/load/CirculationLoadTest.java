@@ -0,0 +1,425 @@
+package com.biblioteca.load;
+
+import com.biblioteca.BibliotecaApiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Carga do fluxo de circulação: sobe a aplicação com o perfil h2 (H2 em modo PostgreSQL), popula livros, usuários
+// e empréstimos e dispara uma mistura configurável de requisições. Opções em chave=valor:
+//
+//   mode=open|closed  open: requisições em ritmo fixo (rate/s), sem esperar as anteriores. A latência conta a partir
+//                     do horário em que a requisição deveria sair, então uma pausa do servidor aparece em todas as
+//                     requisições atrasadas e não só na que travou (sem coordinated omission).
+//                     closed: concurrency clientes, cada um espera a resposta antes de mandar a próxima.
+//   rate=200 concurrency=64 duration=60s warmup=10s
+//   mix=createLoan:30,returnLoan:25,getBooks:30,userLoans:15
+//   users=5000 books=20000 history=5   (empréstimos já devolvidos por usuário)
+//   profiles=h2,virtual                perfis da aplicação que sobe (padrão h2; o h2 é sempre incluído)
+//   properties=chave=valor,chave=valor propriedades extras da aplicação, por exemplo
+//                                      biblioteca.web.max-concurrent-requests=20
+//   url=http://host:8080               usa uma aplicação já no ar, populada com o mesmo volume, em vez de subir uma
+//   out=target/load-test.json
+public class CirculationLoadTest {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    enum Operation {
+        CREATE_LOAN("createLoan", "POST /api/loans"),
+        RETURN_LOAN("returnLoan", "PATCH /api/loans/{id}/return"),
+        GET_BOOKS("getBooks", "GET /api/books"),
+        USER_LOANS("userLoans", "GET /api/loans/user/{userId}");
+
+        private final String key;
+        private final String endpoint;
+
+        Operation(String key, String endpoint) {
+            this.key = key;
+            this.endpoint = endpoint;
+        }
+
+        static Operation of(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Operação desconhecida no mix: " + key);
+        }
+    }
+
+    // Respostas 2xx, recusas de regra de negócio (4xx, por exemplo limite de empréstimos) e erros (5xx, timeout, conexão)
+    private static final class Stats {
+        private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        // returnLoan sem empréstimo aberto para devolver
+        private final LongAdder skipped = new LongAdder();
+
+        long total() {
+            return ok.sum() + rejected.sum() + errors.sum();
+        }
+    }
+
+    private final Map<String, String> options;
+    private final String mode;
+    private final int rate;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int users;
+    private final int books;
+    private final int history;
+    private final Operation[] mix;
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Queue<Long> openLoans = new ConcurrentLinkedQueue<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private String baseUrl;
+    private long measureFrom;
+
+    CirculationLoadTest(Map<String, String> options) {
+        this.options = options;
+        mode = options.getOrDefault("mode", "open");
+        rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        duration = seconds(options.getOrDefault("duration", "60s"));
+        warmup = seconds(options.getOrDefault("warmup", "10s"));
+        users = Integer.parseInt(options.getOrDefault("users", "5000"));
+        books = Integer.parseInt(options.getOrDefault("books", "20000"));
+        history = Integer.parseInt(options.getOrDefault("history", "5"));
+        mix = parseMix(options.getOrDefault("mix", "createLoan:30,returnLoan:25,getBooks:30,userLoans:15"));
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("mode deve ser open ou closed");
+        }
+        if (books < users / 2) {
+            throw new IllegalArgumentException("books precisa ser pelo menos users / 2 para os empréstimos abertos iniciais");
+        }
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Opção fora do formato chave=valor: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new CirculationLoadTest(options).run();
+        System.exit(0);
+    }
+
+    private static Duration seconds(String value) {
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    // Cada operação ocupa tantas posições quanto o seu peso; a escolha é uma posição aleatória
+    private static Operation[] parseMix(String value) {
+        List<Operation> slots = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Operation.of(parts[0]);
+            for (int i = 0; i < Integer.parseInt(parts[1]); i++) {
+                slots.add(operation);
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("mix sem operações");
+        }
+        return slots.toArray(new Operation[0]);
+    }
+
+    void run() throws Exception {
+        ConfigurableApplicationContext context = null;
+        if (options.containsKey("url")) {
+            baseUrl = options.get("url");
+        } else {
+            context = startApplication();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            long start = System.nanoTime();
+            measureFrom = start + warmup.toNanos();
+            long end = measureFrom + duration.toNanos();
+            if (mode.equals("open")) {
+                runOpenLoop(start, end);
+            } else {
+                runClosedLoop(end);
+            }
+            report();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    // A carga inicial roda no ApplicationStartedEvent, antes do ApplicationReadyEvent que monta os índices em memória
+    private ConfigurableApplicationContext startApplication() {
+        ApplicationListener<ApplicationEvent> seeder = event -> {
+            if (event instanceof ApplicationStartedEvent started) {
+                seed(started.getApplicationContext().getBean(JdbcTemplate.class));
+            }
+        };
+        // O devtools reiniciaria a aplicação num classloader novo chamando main de novo, sem as opções
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Propriedades de sistema, para valerem sobre os arquivos dos perfis (application-virtual.properties)
+        if (options.containsKey("properties")) {
+            for (String property : options.get("properties").split(",")) {
+                int separator = property.indexOf('=');
+                System.setProperty(property.substring(0, separator), property.substring(separator + 1));
+            }
+        }
+        Set<String> profiles = new LinkedHashSet<>(List.of("h2"));
+        profiles.addAll(List.of(options.getOrDefault("profiles", "h2").split(",")));
+        System.out.printf("Perfis %s, propriedades %s%n", profiles, options.getOrDefault("properties", "padrão"));
+        return new SpringApplicationBuilder(BibliotecaApiApplication.class)
+                .profiles(profiles.toArray(new String[0]))
+                .properties("server.port=0",
+                        "spring.devtools.add-properties=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .listeners(seeder)
+                .run();
+    }
+
+    // Metade dos usuários começa com um empréstimo aberto (o livro de mesmo ID), para o returnLoan ter o que devolver
+    private void seed(JdbcTemplate jdbcTemplate) {
+        long started = System.nanoTime();
+        int withOpenLoan = users / 2;
+        jdbcTemplate.update("insert into book (title, author, isbn, publication_year, total_quantity, available_quantity, status, version) " +
+                "select 'Livro ' || r.\"X\", 'Autor ' || mod(r.\"X\", 2000), 'ISBN-' || r.\"X\", 1900 + mod(r.\"X\", 125), 3, " +
+                "case when r.\"X\" <= " + withOpenLoan + " then 2 else 3 end, 'DISPONIVEL', 0 " +
+                "from system_range(1, " + books + ") r");
+        jdbcTemplate.update("insert into users (name, email, cpf, register_date, status, active_loan_count, version) " +
+                "select 'Usuário ' || r.\"X\", 'usuario' || r.\"X\" || '@example.com', lpad(r.\"X\", 11, '0'), current_date, 'ATIVO', " +
+                "case when r.\"X\" <= " + withOpenLoan + " then 1 else 0 end, 0 " +
+                "from system_range(1, " + users + ") r");
+        jdbcTemplate.update("insert into loan (user_id, book_id, loan_date, expected_return_date, return_date, status) " +
+                "select mod(r.\"X\", " + users + ") + 1, mod(r.\"X\" * 7919, " + books + ") + 1, " +
+                "current_date - 60, current_date - 46, current_date - 50, 'DEVOLVIDO' " +
+                "from system_range(1, " + (long) users * history + ") r");
+        jdbcTemplate.update("insert into loan (user_id, book_id, loan_date, expected_return_date, status) " +
+                "select r.\"X\", r.\"X\", current_date - 3, current_date + 11, 'ATIVO' " +
+                "from system_range(1, " + withOpenLoan + ") r");
+        openLoans.addAll(jdbcTemplate.queryForList("select id from loan where status = 'ATIVO'", Long.class));
+        System.out.printf("Carga inicial: %d livros, %d usuários, %d empréstimos em %d ms%n", books, users,
+                (long) users * history + withOpenLoan, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void runOpenLoop(long start, long end) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * interval;
+                if (intended >= end) {
+                    break;
+                }
+                // Se o gerador atrasar, as requisições atrasadas saem em seguida e o atraso entra na latência delas
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = pick();
+                requests.execute(() -> execute(operation, intended));
+            }
+        }
+    }
+
+    private void runClosedLoop(long end) {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.execute(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        execute(pick(), now);
+                    }
+                });
+            }
+        }
+    }
+
+    private Operation pick() {
+        return mix[ThreadLocalRandom.current().nextInt(mix.length)];
+    }
+
+    private void execute(Operation operation, long intended) {
+        Stats operationStats = stats.get(operation);
+        boolean measured = intended >= measureFrom;
+        HttpRequest request = request(operation);
+        if (request == null) {
+            if (measured) {
+                operationStats.skipped.increment();
+            }
+            return;
+        }
+        int status;
+        String body = null;
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+            body = response.body();
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+
+        if (operation == Operation.CREATE_LOAN && status == 201) {
+            openLoans.add(loanId(body));
+        }
+        if (!measured) {
+            return;
+        }
+        operationStats.latency.recordValue(Math.min(latency, MAX_LATENCY_MICROS));
+        if (status >= 200 && status < 300) {
+            operationStats.ok.increment();
+        } else if (status >= 400 && status < 500) {
+            operationStats.rejected.increment();
+        } else {
+            operationStats.errors.increment();
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        switch (operation) {
+            case CREATE_LOAN -> {
+                String body = "{\"userId\":" + random.nextInt(1, users + 1) + ",\"bookId\":" + random.nextInt(1, books + 1) + "}";
+                builder.uri(URI.create(baseUrl + "/api/loans"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+            }
+            case RETURN_LOAN -> {
+                Long loanId = openLoans.poll();
+                if (loanId == null) {
+                    return null;
+                }
+                builder.uri(URI.create(baseUrl + "/api/loans/" + loanId + "/return"))
+                        .method("PATCH", HttpRequest.BodyPublishers.noBody());
+            }
+            case GET_BOOKS -> {
+                // A maioria navega pelas primeiras páginas; parte filtra só os disponíveis
+                String query = "page=" + random.nextInt(50) + "&size=20" + (random.nextInt(10) < 3 ? "&status=DISPONIVEL" : "");
+                builder.uri(URI.create(baseUrl + "/api/books?" + query)).GET();
+            }
+            case USER_LOANS -> builder.uri(URI.create(baseUrl + "/api/loans/user/" + random.nextInt(1, users + 1))).GET();
+        }
+        return builder.build();
+    }
+
+    private long loanId(String body) {
+        try {
+            return objectMapper.readTree(body).get("id").asLong();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report() throws IOException {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf("Modo %s, %s, %d s medidos após %d s de aquecimento%n", mode,
+                mode.equals("open") ? rate + " req/s planejadas" : concurrency + " clientes",
+                duration.toSeconds(), warmup.toSeconds());
+        System.out.printf("%-30s %8s %8s %7s %7s %7s %9s %9s %9s %9s%n",
+                "Endpoint", "req", "req/s", "4xx %", "erro %", "pulados", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Stats operationStats = stats.get(operation);
+            long total = operationStats.total();
+            if (total == 0 && operationStats.skipped.sum() == 0) {
+                continue;
+            }
+            Histogram latency = operationStats.latency;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("operation", operation.key);
+            result.put("endpoint", operation.endpoint);
+            result.put("requests", total);
+            result.put("throughput", total / seconds);
+            result.put("ok", operationStats.ok.sum());
+            result.put("rejectedRate", rate(operationStats.rejected.sum(), total));
+            result.put("errorRate", rate(operationStats.errors.sum(), total));
+            result.put("skipped", operationStats.skipped.sum());
+            result.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+            result.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+            result.put("p999Ms", millis(latency.getValueAtPercentile(99.9)));
+            result.put("maxMs", millis(latency.getMaxValue()));
+            results.add(result);
+
+            System.out.printf("%-30s %8d %8.1f %7.2f %7.2f %7d %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.endpoint, total, total / seconds,
+                    100 * rate(operationStats.rejected.sum(), total), 100 * rate(operationStats.errors.sum(), total),
+                    operationStats.skipped.sum(),
+                    result.get("p50Ms"), result.get("p99Ms"), result.get("p999Ms"), result.get("maxMs"));
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mode", mode);
+        summary.put("rate", mode.equals("open") ? rate : null);
+        summary.put("concurrency", mode.equals("closed") ? concurrency : null);
+        summary.put("durationSeconds", duration.toSeconds());
+        summary.put("warmupSeconds", warmup.toSeconds());
+        summary.put("users", users);
+        summary.put("books", books);
+        summary.put("results", results);
+        File out = new File(options.getOrDefault("out", "target/load-test.json"));
+        if (out.getParentFile() != null) {
+            out.getParentFile().mkdirs();
+        }
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(out, summary);
+        System.out.println("Resultado salvo em " + out.getPath());
+    }
+
+    private static double rate(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
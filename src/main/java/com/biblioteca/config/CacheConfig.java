@@ -0,0 +1,60 @@
+package com.biblioteca.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String BOOKS = "books";
+    public static final String USERS = "users";
+
+    // Os evicts só são aplicados depois do commit: antes dele, uma leitura ainda carregaria a linha antiga do banco.
+    // Uma leitura que carregou a linha antiga antes do commit e só grava no cache depois do evict é barrada pelo
+    // EvictionGuardedCache. O valor em cache fica atrás do banco no máximo entre o commit e o evict.
+    @Bean
+    public CacheManager cacheManager(@Value("${biblioteca.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${biblioteca.cache.ttl:10m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new EvictionGuardedCache(super.adaptCaffeineCache(name, cache));
+            }
+        };
+        cacheManager.setCacheNames(List.of(BOOKS, USERS));
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    // O CacheMetricsRegistrar do Boot só desembrulha o TransactionAwareCacheDecorator e o binder do Caffeine só
+    // reconhece CaffeineCache; sem este provider, books e users ficariam sem as métricas cache.gets
+    @Bean
+    public CacheMeterBinderProvider<EvictionGuardedCache> evictionGuardedCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+        return new CacheMeterBinderProvider<>() {
+            @Override
+            public MeterBinder getMeterBinder(EvictionGuardedCache cache, Iterable<Tag> tags) {
+                return cache.getTargetCache() instanceof CaffeineCache target ? caffeine.getMeterBinder(target, tags) : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.biblioteca.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// Remove do cache os livros e usuários alterados por UPDATEs diretos (quantidades e contador de empréstimos),
+// que não passam pelos @CacheEvict de BookService e UserService
+@Component
+public class EntityCacheEvictor {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public void evictBooks(Collection<Long> bookIds) {
+        evict(CacheConfig.BOOKS, bookIds);
+    }
+
+    public void evictUsers(Collection<Long> userIds) {
+        evict(CacheConfig.USERS, userIds);
+    }
+
+    private void evict(String cacheName, Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.biblioteca.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Impede que uma leitura recoloque no cache um valor que um evict já invalidou. Sem isso: a leitura não acha o livro
+// no cache e carrega a linha antiga, a escrita faz o commit e o evict, e a leitura grava a linha antiga no cache,
+// que ficaria servindo o valor desatualizado até o TTL.
+// Cada evict carimba a chave (em faixas, para a memória não crescer com o número de chaves) com um relógio lógico;
+// o put que vem depois de um miss só grava se não houve evict da chave desde aquele miss.
+class EvictionGuardedCache implements Cache {
+    private static final int STRIPES = 1024;
+    // Acima disso os misses sem put (registro inexistente) são esquecidos; um put atrasado deles só deixa de gravar
+    private static final int MAX_TRACKED_MISSES = 64;
+
+    private final Cache target;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLongArray evictedAt = new AtomicLongArray(STRIPES);
+    private volatile long clearedAt;
+    // O put do @Cacheable roda na mesma thread do miss, inclusive quando é adiado para depois do commit
+    private final ThreadLocal<Map<Object, Long>> misses = ThreadLocal.withInitial(HashMap::new);
+
+    EvictionGuardedCache(Cache target) {
+        this.target = target;
+    }
+
+    Cache getTargetCache() {
+        return target;
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        long now = clock.get();
+        ValueWrapper value = target.get(key);
+        if (value == null) {
+            Map<Object, Long> pending = misses.get();
+            if (pending.size() >= MAX_TRACKED_MISSES) {
+                pending.clear();
+            }
+            pending.put(key, now);
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return target.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return target.get(key, valueLoader);
+    }
+
+    // Só grava o valor carregado depois de um miss desta thread (o fluxo do @Cacheable); sem o miss registrado não há
+    // como saber se houve evict no meio, e deixar de gravar só custa uma ida ao banco
+    @Override
+    public void put(Object key, Object value) {
+        Long missedAt = misses.get().remove(key);
+        if (missedAt != null && Math.max(evictedAt.get(stripe(key)), clearedAt) <= missedAt) {
+            target.put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return target.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictedAt.set(stripe(key), clock.incrementAndGet());
+        target.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        evictedAt.set(stripe(key), clock.incrementAndGet());
+        return target.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        clearedAt = clock.incrementAndGet();
+        target.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        clearedAt = clock.incrementAndGet();
+        return target.invalidate();
+    }
+
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+}
@@ -0,0 +1,47 @@
+package com.biblioteca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Envolve o DataSource do Hikari com o datasource-proxy para contar as instruções de cada requisição e registrar as
+// consultas lentas. Substitui o spring.jpa.show-sql, que imprimia todas as instruções sem dizer de qual requisição.
+@Configuration
+public class SqlMonitoringConfig {
+
+    // static: o post-processor é criado antes dos outros beans e não deve puxar esta configuração junto
+    @Bean
+    public static BeanPostProcessor sqlStatementDataSourcePostProcessor(
+            @Value("${biblioteca.sql.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        SqlStatementListener listener = new SqlStatementListener(slowQueryThreshold);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(listener)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementFilter> sqlStatementFilter(
+            MeterRegistry meterRegistry,
+            @Value("${biblioteca.sql.request-warn-statements:20}") int warnStatements) {
+        FilterRegistrationBean<SqlStatementFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementFilter(meterRegistry, warnStatements));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
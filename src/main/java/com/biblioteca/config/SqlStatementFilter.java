@@ -0,0 +1,66 @@
+package com.biblioteca.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Conta as instruções SQL e o tempo de banco de cada requisição e publica por endpoint (method + uri, a rota
+// do controller e não o caminho com IDs). Uma requisição com instruções demais costuma ser um N+1: ela é
+// registrada em WARN com as contagens; as demais só em DEBUG.
+@Slf4j
+public class SqlStatementFilter extends OncePerRequestFilter {
+    static final String STATEMENTS_METRIC = "biblioteca.http.sql.statements";
+    static final String TIME_METRIC = "biblioteca.http.sql.time";
+
+    private final MeterRegistry meterRegistry;
+    private final int warnStatements;
+
+    public SqlStatementFilter(MeterRegistry meterRegistry, int warnStatements) {
+        this.meterRegistry = meterRegistry;
+        this.warnStatements = warnStatements;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementListener.Scope scope = SqlStatementListener.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            scope.close();
+            record(request, scope);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementListener.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+        DistributionSummary.builder(STATEMENTS_METRIC)
+                .baseUnit("statements")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(scope.statements());
+        Timer.builder(TIME_METRIC)
+                .tags(tags)
+                .register(meterRegistry)
+                .record(scope.elapsed());
+
+        if (scope.statements() > warnStatements) {
+            log.warn("{} {} executou {} instruções SQL em {} ms", request.getMethod(), request.getRequestURI(),
+                    scope.statements(), scope.elapsed().toMillis());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {} executou {} instruções SQL em {} ms", request.getMethod(), request.getRequestURI(),
+                    scope.statements(), scope.elapsed().toMillis());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.biblioteca.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Recebe cada execução JDBC do DataSource (via datasource-proxy): soma as instruções e o tempo no Scope aberto na
+// thread atual e registra as consultas que passam de slowQueryThreshold. Um batch JDBC conta como uma instrução,
+// porque é uma ida ao banco.
+@Slf4j
+public class SqlStatementListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final String STARTED_AT = "startedAt";
+    // Os valores dos parâmetros nunca são registrados; literais de texto escritos direto no SQL também são ocultados
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private final long slowQueryNanos;
+
+    public SqlStatementListener(Duration slowQueryThreshold) {
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    // Começa a contar as instruções da thread atual até o close(); o que um Scope interno contou soma no externo
+    public static Scope open() {
+        return open(false);
+    }
+
+    // Também guarda o texto de cada instrução, para mostrar nos testes o que passou do orçamento
+    public static Scope open(boolean recordQueries) {
+        Scope parent = CURRENT.get();
+        Scope scope = new Scope(parent, recordQueries || (parent != null && parent.queries != null));
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long startedAt = execInfo.getCustomValue(STARTED_AT, Long.class);
+        long elapsedNanos = startedAt == null ? 0 : System.nanoTime() - startedAt;
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.record(queryInfoList, elapsedNanos);
+        }
+        if (elapsedNanos >= slowQueryNanos) {
+            log.warn("Consulta lenta ({} ms, {}): {}", elapsedNanos / 1_000_000,
+                    execInfo.isBatch() ? "batch de " + execInfo.getBatchSize() : "parâmetros omitidos",
+                    redact(queryInfoList));
+        }
+    }
+
+    static String redact(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream()
+                .map(queryInfo -> STRING_LITERAL.matcher(queryInfo.getQuery()).replaceAll("'?'"))
+                .collect(Collectors.joining("; "));
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final List<String> queries;
+        private long statements;
+        private long elapsedNanos;
+
+        private Scope(Scope parent, boolean recordQueries) {
+            this.parent = parent;
+            this.queries = recordQueries ? new ArrayList<>() : null;
+        }
+
+        private void record(List<QueryInfo> queryInfoList, long nanos) {
+            statements++;
+            elapsedNanos += nanos;
+            if (queries != null) {
+                queries.add(redact(queryInfoList));
+            }
+        }
+
+        public long statements() {
+            return statements;
+        }
+
+        public Duration elapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        // As instruções na ordem em que foram executadas, já com os literais ocultados (vazia se não foi open(true))
+        public List<String> queries() {
+            return queries == null ? List.of() : List.copyOf(queries);
+        }
+
+        @Override
+        public void close() {
+            if (parent != null) {
+                parent.statements += statements;
+                parent.elapsedNanos += elapsedNanos;
+                if (parent.queries != null && queries != null) {
+                    parent.queries.addAll(queries);
+                }
+            }
+            CURRENT.set(parent);
+        }
+    }
+}
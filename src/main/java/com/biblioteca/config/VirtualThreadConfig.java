@@ -0,0 +1,30 @@
+package com.biblioteca.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Ativa com spring.threads.virtual.enabled=true (perfil "virtual"). O Spring Boot passa a usar virtual threads no
+// Tomcat, no @Scheduled e no executor de tarefas; aqui só entra o limite de requisições em /api ligado ao pool.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // O padrão deixa 20% do pool para as tarefas agendadas e os índices, que usam conexões fora das requisições
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${biblioteca.web.max-concurrent-requests:0}") int maxConcurrentRequests,
+            @Value("${biblioteca.web.acquire-timeout:5s}") Duration acquireTimeout) {
+        int limit = maxConcurrentRequests > 0 ? maxConcurrentRequests : Math.max(1, poolSize * 4 / 5);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(limit, acquireTimeout));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
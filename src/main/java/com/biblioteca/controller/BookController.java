@@ -1,14 +1,28 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.BookImportResultDTO;
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.dto.BookSummaryDTO;
 import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
 import com.biblioteca.exception.ResourceNotFoundException;
+import com.biblioteca.index.AvailabilityIndex;
+import com.biblioteca.service.AvailabilityFeedService;
+import com.biblioteca.service.BookImportService;
 import com.biblioteca.service.BookService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -18,21 +32,83 @@ public class BookController {
     @Autowired
     private BookService BookService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private AvailabilityFeedService availabilityFeedService;
+
     @PostMapping
     public ResponseEntity<Book> createBook(@Valid @RequestBody Book book) {
         Book createdBook = BookService.createBook(book);
         return new ResponseEntity<>(createdBook, HttpStatus.CREATED);
     }
 
+    // O corpo da requisição é lido conforme chega, sem carregar o arquivo inteiro em memória
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<BookImportResultDTO> importBooksCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookImportResultDTO> importBooksJson(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importJson(body));
+    }
+
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        List<Book> books = BookService.findAllBooks();
-        return new ResponseEntity<>(books, HttpStatus.OK);
+    public ResponseEntity<Page<BookSummaryDTO>> getAllBooks(
+            @RequestParam(required = false) BookStatus status,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @PageableDefault(size = 20) Pageable pageable) {
+        Page<BookSummaryDTO> books = BookService.findBooks(status, author, yearFrom, yearTo, pageable);
+        return ResponseEntity.ok().eTag(ETags.of(books, BookSummaryDTO::getId, BookSummaryDTO::getVersion)).body(books);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Page<Book>> searchBooks(@RequestParam("q") String query,
+                                                  @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(BookService.searchBooks(query, pageable));
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<BookSuggestionDTO>> autocomplete(@RequestParam("q") String prefix,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(BookService.suggestBooks(prefix, limit));
+    }
+
+    // Corpo binário no formato portável do Roaring; o cliente guarda X-Availability-Version e a envia em "since"
+    @GetMapping(value = "/availability", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getAvailability(@RequestParam(required = false) Long since) {
+        AvailabilityIndex.Availability availability = BookService.getAvailability(since);
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(availability.kind() == AvailabilityIndex.Kind.NOT_MODIFIED ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .header("X-Availability-Version", String.valueOf(availability.version()));
+        if (availability.kind() == AvailabilityIndex.Kind.NOT_MODIFIED) {
+            return response.build();
+        }
+        return response.header("X-Availability-Kind", availability.kind().name().toLowerCase()).body(availability.body());
+    }
+
+    // Eventos "availability" com os livros que mudaram e "reset" quando o painel deve recarregar o estado.
+    // Ao reconectar, o EventSource do navegador manda o id do último evento em Last-Event-ID.
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return availabilityFeedService.subscribe(lastEventId);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Book> getBookById(@PathVariable Long id) {
         return BookService.findBookById(id)
+                .map(book -> ResponseEntity.ok().eTag(ETags.of(book.getVersion())).body(book))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Book> getBookByIsbn(@PathVariable String isbn) {
+        return BookService.findBookIdByIsbn(isbn)
+                .flatMap(id -> BookService.findBookById(id))
                 .map(book -> new ResponseEntity<>(book, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
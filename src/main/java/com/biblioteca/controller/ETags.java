@@ -0,0 +1,49 @@
+package com.biblioteca.controller;
+
+import org.springframework.data.domain.Page;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+// ETags fortes a partir da coluna @Version. Com a ETag no ResponseEntity, o Spring responde 304 ao
+// If-None-Match sem serializar o corpo.
+final class ETags {
+
+    private ETags() {
+    }
+
+    // Entidade ainda não gravada não tem versão; conta como a versão inicial
+    static String of(Long version) {
+        return "\"" + valueOf(version) + "\"";
+    }
+
+    // Listas: agrega os campos indicados de cada item (id, versão e o que mais mudar a representação) com o total,
+    // sem montar o JSON. A ETag muda quando um item da lista é alterado, entra ou sai; a página e o tamanho já fazem
+    // parte da URL.
+    @SafeVarargs
+    static <T> String of(Collection<T> items, long total, Function<T, ? extends Number>... fields) {
+        long hash = mix(total);
+        for (T item : items) {
+            for (Function<T, ? extends Number> field : fields) {
+                hash = mix(hash ^ valueOf(field.apply(item)));
+            }
+        }
+        return "\"" + items.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    @SafeVarargs
+    static <T> String of(Page<T> page, Function<T, ? extends Number>... fields) {
+        return of(page.getContent(), page.getTotalElements(), fields);
+    }
+
+    private static long valueOf(Number value) {
+        return value == null ? 0 : value.longValue();
+    }
+
+    // Finalizador do SplitMix64: espalha cada bit da entrada por todo o resultado
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,56 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.ExportFormat;
+import com.biblioteca.entity.LoanStatus;
+import com.biblioteca.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/loans")
+    public void exportLoans(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) LoanStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        prepare(response, "loans", format);
+        exportService.exportLoans(status, from, to, format, response.getOutputStream());
+    }
+
+    @GetMapping("/books")
+    public void exportBooks(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        prepare(response, "books", format);
+        exportService.exportBooks(format, response.getOutputStream());
+    }
+
+    @GetMapping("/users")
+    public void exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        prepare(response, "users", format);
+        exportService.exportUsers(format, response.getOutputStream());
+    }
+
+    private void prepare(HttpServletResponse response, String name, ExportFormat format) {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name + "." + format.getExtension())
+                .build()
+                .toString());
+    }
+}
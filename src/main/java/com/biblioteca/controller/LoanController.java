@@ -1,46 +1,103 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.CursorPageDTO;
+import com.biblioteca.dto.LoanBatchItemResultDTO;
+import com.biblioteca.dto.LoanBatchRequestDTO;
+import com.biblioteca.dto.LoanReturnBatchRequestDTO;
 import com.biblioteca.dto.LoanRequestDTO;
 import com.biblioteca.dto.LoanResponseDTO;
 import com.biblioteca.entity.Loan;
+import com.biblioteca.entity.LoanStatus;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/loans")
 public class LoanController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping
     public ResponseEntity<LoanResponseDTO> createLoan(@Valid @RequestBody LoanRequestDTO loanRequest) {
         LoanResponseDTO newLoanDTO = loanService.createLoan(loanRequest);
         return new ResponseEntity<>(newLoanDTO, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<LoanBatchItemResultDTO>> createLoans(@Valid @RequestBody LoanBatchRequestDTO batchRequest) {
+        List<LoanBatchItemResultDTO> results = loanService.createLoans(batchRequest);
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping
-    public ResponseEntity<List<LoanResponseDTO>> getAllLoans(){
-        List<LoanResponseDTO> loans = loanService.findAllLoans();
+    public ResponseEntity<CursorPageDTO<LoanResponseDTO>> getAllLoans(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) LoanStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @PageableDefault(size = 50) Pageable pageable) {
+        CursorPageDTO<LoanResponseDTO> loans = loanService.findLoansPage(after, status, from, to, pageable.getPageSize());
         return ResponseEntity.ok(loans);
     }
 
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public void streamLoans(
+            @RequestParam(required = false) LoanStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        ServletOutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(LoanResponseDTO.class);
+
+        loanService.streamLoans(status, from, to, loan -> {
+            try {
+                out.write(writer.writeValueAsBytes(loan));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<LoanResponseDTO>> getLoansByUserId(@PathVariable Long userId) {
         List<LoanResponseDTO> loans = loanService.findLoansByUserId(userId);
         return ResponseEntity.ok(loans);
     }
 
+    @PatchMapping("/return")
+    public ResponseEntity<List<LoanBatchItemResultDTO>> returnLoans(@Valid @RequestBody LoanReturnBatchRequestDTO batchRequest) {
+        List<LoanBatchItemResultDTO> results = loanService.returnLoans(batchRequest);
+        return ResponseEntity.ok(results);
+    }
+
     @PatchMapping("/{id}/return")
     public ResponseEntity<LoanResponseDTO> returnLoan(@PathVariable Long id) {
         LoanResponseDTO returnedLoan = loanService.returnLoan(id);
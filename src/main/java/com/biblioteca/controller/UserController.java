@@ -1,10 +1,14 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.UserSummaryDTO;
 import com.biblioteca.entity.Users;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,15 +30,17 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Users>> getAllUsers() {
-        List<Users> users = UserService.findAllUsers();
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public ResponseEntity<Page<UserSummaryDTO>> getAllUsers(@PageableDefault(size = 20) Pageable pageable) {
+        Page<UserSummaryDTO> users = UserService.findUsers(pageable);
+        return ResponseEntity.ok().eTag(eTag(users.getContent(), users.getTotalElements())).body(users);
     }
 
+    // O usuário vem do cache; só as contagens de empréstimos vão ao banco
     @GetMapping("/{id}")
-    public ResponseEntity<Users> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserSummaryDTO> getUserById(@PathVariable Long id) {
         return UserService.findUserById(id)
-                .map(user -> new ResponseEntity<>(user, HttpStatus.OK))
+                .map(user -> UserService.summarize(List.of(user)).get(0))
+                .map(summary -> ResponseEntity.ok().eTag(eTag(List.of(summary), 1)).body(summary))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -49,4 +55,10 @@ public class UserController {
         UserService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
+
+    // A versão do usuário não muda quando um empréstimo fica atrasado, então as contagens também entram na ETag
+    private static String eTag(List<UserSummaryDTO> users, long total) {
+        return ETags.of(users, total, UserSummaryDTO::getId, UserSummaryDTO::getVersion,
+                UserSummaryDTO::getActiveLoans, UserSummaryDTO::getOverdueLoans, UserSummaryDTO::getTotalLoans);
+    }
 }
\ No newline at end of file
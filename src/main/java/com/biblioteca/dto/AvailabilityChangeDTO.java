@@ -0,0 +1,18 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityChangeDTO {
+    // versão do índice de disponibilidade, a mesma de X-Availability-Version e do id do evento
+    private long version;
+    // estado atual de cada livro que mudou; o mesmo livro não aparece nas duas listas
+    private List<Long> available;
+    private List<Long> unavailable;
+}
@@ -0,0 +1,16 @@
+package com.biblioteca.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BookImportResultDTO {
+    private int imported;
+    private int rejected;
+    // no máximo BookImportService.MAX_REPORTED_ERRORS mensagens, para a resposta não crescer com o arquivo
+    private List<String> errors = new ArrayList<>();
+    private long elapsedMillis;
+    private double rowsPerSecond;
+}
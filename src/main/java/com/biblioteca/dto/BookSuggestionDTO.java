@@ -0,0 +1,22 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO {
+    // título ou autor como está cadastrado, com acentos e maiúsculas
+    private String text;
+    private Field field;
+    // livro mais emprestado entre os que têm esse título ou autor
+    private Long bookId;
+    private int loanCount;
+
+    public enum Field {
+        TITLE,
+        AUTHOR
+    }
+}
@@ -0,0 +1,22 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.entity.BookStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Modelo de leitura do catálogo: só as colunas de book, montado por projeção, sem entidade nem associações
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummaryDTO {
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private Integer publicationYear;
+    private Integer totalQuantity;
+    private Integer availableQuantity;
+    private BookStatus status;
+    private Long version;
+}
@@ -0,0 +1,24 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchItemResultDTO {
+    // o item como foi enviado na requisição (ID do livro, ID do empréstimo ou ISBN)
+    private String reference;
+    private boolean success;
+    private String message;
+    private LoanResponseDTO loan;
+
+    public static LoanBatchItemResultDTO success(Object reference, LoanResponseDTO loan) {
+        return new LoanBatchItemResultDTO(String.valueOf(reference), true, null, loan);
+    }
+
+    public static LoanBatchItemResultDTO failure(Object reference, String message) {
+        return new LoanBatchItemResultDTO(String.valueOf(reference), false, message, null);
+    }
+}
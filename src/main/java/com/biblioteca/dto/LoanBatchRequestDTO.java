@@ -0,0 +1,19 @@
+package com.biblioteca.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LoanBatchRequestDTO {
+
+    @NotNull(message = "O ID do usuário é obrigatório.")
+    private Long userId;
+
+    @NotEmpty(message = "Informe ao menos um livro.")
+    @Size(max = 50, message = "Informe no máximo 50 livros por lote.")
+    private List<@NotNull(message = "O ID do livro é obrigatório.") Long> bookIds;
+}
@@ -1,10 +1,15 @@
 package com.biblioteca.dto;
 
 import com.biblioteca.entity.LoanStatus;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class LoanResponseDTO {
     private Long id;
     private Long bookId;
@@ -14,4 +19,4 @@ public class LoanResponseDTO {
     private LocalDate loanDate;
     private LocalDate expectedReturnDate;
     private LoanStatus status;
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LoanReturnBatchRequestDTO {
+
+    @Size(max = 1000, message = "Informe no máximo 1000 empréstimos por lote.")
+    private List<@NotNull(message = "O ID do empréstimo é obrigatório.") Long> loanIds;
+
+    @Size(max = 1000, message = "Informe no máximo 1000 ISBNs por lote.")
+    private List<@NotNull(message = "O ISBN é obrigatório.") String> isbns;
+
+    @JsonIgnore
+    @AssertTrue(message = "Informe ao menos um empréstimo ou ISBN.")
+    public boolean isNotEmpty() {
+        return (loanIds != null && !loanIds.isEmpty()) || (isbns != null && !isbns.isEmpty());
+    }
+}
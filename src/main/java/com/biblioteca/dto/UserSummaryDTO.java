@@ -0,0 +1,26 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.entity.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Usuário com as contagens de empréstimos no lugar do histórico, que fica em /api/loans/user/{userId}.
+// activeLoans conta os não devolvidos (ATIVO e ATRASADO), como o limite de empréstimos; overdueLoans, só os ATRASADO.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Long id;
+    private String name;
+    private String email;
+    private String cpf;
+    private LocalDate registerDate;
+    private UserStatus status;
+    private Long version;
+    private long activeLoans;
+    private long overdueLoans;
+    private long totalLoans;
+}
@@ -1,17 +1,28 @@
 // src/main/java/com/biblioteca/entity/Book.java
 package com.biblioteca.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
 @Data
 @Entity
+// Índices do catálogo paginado: cada filtro tem um índice que começa pela sua coluna, e a ordenação
+// padrão (title, id) pode ser lida direto do índice, com ou sem o filtro de status
+@Table(indexes = {
+        @Index(name = "idx_book_title_id", columnList = "title, id"),
+        @Index(name = "idx_book_status_title_id", columnList = "status, title, id"),
+        @Index(name = "idx_book_author_publication_year", columnList = "author, publication_year"),
+        @Index(name = "idx_book_publication_year", columnList = "publication_year")
+})
 public class Book {
 
     @Id
@@ -45,8 +56,17 @@ public class Book {
     @Column(nullable = false)
     private BookStatus status;
 
+    // Incrementada pelo Hibernate e pelos UPDATEs diretos de BookRepository; é a ETag do livro
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // Fora do JSON: a coleção é LAZY e o livro pode ser servido do cache, já fora da sessão
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
+    @JsonIgnore
     private List<Loan> loans;
 }
\ No newline at end of file
@@ -9,6 +9,12 @@ import java.time.LocalDate;
 
 @Data
 @Entity
+// status + expected_return_date atende a busca de empréstimos vencidos do OverdueLoanService sem varrer a tabela inteira;
+// user_id + status atende o histórico por usuário e as contagens do resumo de usuários
+@Table(indexes = {
+        @Index(name = "idx_loan_status_expected_return_date", columnList = "status, expected_return_date"),
+        @Index(name = "idx_loan_user_id_status", columnList = "user_id, status")
+})
 public class Loan {
 
     @Id
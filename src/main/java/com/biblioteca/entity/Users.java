@@ -1,10 +1,12 @@
 package com.biblioteca.entity;
 
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -32,11 +34,24 @@ public class Users {
     @Column(nullable = false)
     private UserStatus status;
 
+    // Empréstimos ainda não devolvidos; mantido apenas pelos UPDATEs condicionais de UserRepository
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int activeLoanCount;
+
+    // Incrementada pelo Hibernate e pelos UPDATEs diretos de UserRepository; é a ETag do usuário
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // Fora do JSON: a coleção é LAZY e o usuário pode ser servido do cache, já fora da sessão
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
-//    remover e atualizar
-    @JsonManagedReference
+    @JsonIgnore
     private List<Loan> loans;
 
     @PrePersist
@@ -0,0 +1,26 @@
+package com.biblioteca.event;
+
+import com.biblioteca.entity.BookStatus;
+
+// Publicado pelos serviços a cada alteração de livro; os índices em memória o consomem depois do commit.
+// title, author e status levam os valores já salvos e ficam null em DELETED.
+public record BookChangedEvent(Type type, Long bookId, String isbn, String title, String author, BookStatus status) {
+
+    public static BookChangedEvent created(Long bookId, String isbn, String title, String author, BookStatus status) {
+        return new BookChangedEvent(Type.CREATED, bookId, isbn, title, author, status);
+    }
+
+    public static BookChangedEvent updated(Long bookId, String isbn, String title, String author, BookStatus status) {
+        return new BookChangedEvent(Type.UPDATED, bookId, isbn, title, author, status);
+    }
+
+    public static BookChangedEvent deleted(Long bookId, String isbn) {
+        return new BookChangedEvent(Type.DELETED, bookId, isbn, null, null, null);
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,10 @@
+package com.biblioteca.event;
+
+// Publicado pelo LoanService a cada empréstimo criado ou devolvido; consumido depois do commit.
+public record LoanChangedEvent(Type type, Long loanId, Long bookId, Long userId) {
+
+    public enum Type {
+        CREATED,
+        RETURNED
+    }
+}
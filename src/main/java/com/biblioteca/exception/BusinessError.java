@@ -0,0 +1,19 @@
+package com.biblioteca.exception;
+
+// Códigos estáveis das regras de negócio: o cliente decide pelo código, não pelo texto da mensagem
+public enum BusinessError {
+    INACTIVE_USER("Usuário não está ativo e não pode realizar empréstimos."),
+    LIMIT_EXCEEDED("Usuário já possui 3 empréstimos ativos. Limite excedido."),
+    BOOK_UNAVAILABLE("Livro não está disponível para empréstimo."),
+    LOAN_ALREADY_RETURNED("Este empréstimo já foi devolvido.");
+
+    private final String message;
+
+    BusinessError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,18 @@
+package com.biblioteca.exception;
+
+// Recusa prevista pelas regras de negócio (livro indisponível, limite de empréstimos...), não uma falha.
+// Não preenche o stack trace: nos títulos mais disputados a maioria dos pedidos termina aqui, e o trace
+// nunca é lido, o GlobalExceptionHandler só devolve o código e a mensagem.
+public class BusinessRuleException extends RuntimeException {
+
+    private final BusinessError error;
+
+    public BusinessRuleException(BusinessError error) {
+        super(error.getMessage(), null, false, false);
+        this.error = error;
+    }
+
+    public BusinessError getError() {
+        return error;
+    }
+}
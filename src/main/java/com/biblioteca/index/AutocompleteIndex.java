@@ -0,0 +1,391 @@
+package com.biblioteca.index;
+
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import com.biblioteca.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Autocompletar por prefixo de título e de autor, ordenado pela quantidade de empréstimos do livro.
+// As chaves ficam em um snapshot ordenado, que equivale às folhas de uma trie em ordem: o prefixo vira
+// um intervalo contíguo achado por busca binária. Uma árvore de segmentos guarda a chave mais emprestada
+// de cada faixa, e os top-k saem dela sem percorrer o intervalo inteiro.
+// Livros criados ou alterados depois do snapshot vão para uma camada pequena (overlay) e as chaves antigas
+// são marcadas como removidas; a reconstrução periódica junta tudo em um novo snapshot.
+@Slf4j
+@Component
+public class AutocompleteIndex {
+    static final int MAX_SUGGESTIONS = 20;
+    static final int OVERLAY_REBUILD_THRESHOLD = 10_000;
+
+    private static final Set<String> LEADING_ARTICLES = Set.of("a", "as", "o", "os", "um", "uma", "uns", "umas", "the");
+    private static final BookSuggestionDTO.Field[] FIELDS = BookSuggestionDTO.Field.values();
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing(Entry::key)
+            .thenComparingInt(Entry::bookId)
+            .thenComparing(Entry::field);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Por livro, indexados pelo id: empréstimos e posição das chaves de título e autor no snapshot (-1 se fora dele)
+    private int[] loanCounts = new int[0];
+    private int[] titlePositions = new int[0];
+    private int[] authorPositions = new int[0];
+
+    // Snapshot em ordem de chave. Só o texto original é guardado; a chave é recalculada nas comparações.
+    // entries[p] = bookId << 1 | campo
+    private String[] texts = new String[0];
+    private int[] entries = new int[0];
+    // tree[1] cobre todo o snapshot e tree[leaves + p] é a posição p; cada nó guarda a posição mais emprestada
+    private int[] tree = new int[2];
+    private int leaves = 1;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    private final TreeSet<Entry> overlay = new TreeSet<>(ENTRY_ORDER);
+    private final Map<Integer, List<Entry>> overlayByBook = new HashMap<>();
+
+    private record Entry(String key, String text, int bookId, BookSuggestionDTO.Field field) {
+    }
+
+    // Chave de comparação: texto normalizado sem o artigo inicial, para "cor" achar "O Cortiço"
+    static String key(String text) {
+        String folded = TextNormalizer.fold(text);
+        int space = folded.indexOf(' ');
+        if (space > 0 && LEADING_ARTICLES.contains(folded.substring(0, space))) {
+            return folded.substring(space + 1);
+        }
+        return folded;
+    }
+
+    // Sugestões distintas por campo e texto; entre livros com o mesmo título ou autor fica o mais emprestado
+    public List<BookSuggestionDTO> suggest(String prefix, int limit) {
+        String normalized = key(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Um separador digitado no fim ("dom ") restringe a palavras completas
+        if (!Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            normalized += " ";
+        }
+        int wanted = Math.min(limit, MAX_SUGGESTIONS);
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(normalized);
+            int to = prefixEnd(normalized, from);
+            PriorityQueue<Integer> nodes = new PriorityQueue<>((a, b) -> compareNodes(b, a));
+            for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    offerNode(nodes, l++);
+                }
+                if ((r & 1) == 1) {
+                    offerNode(nodes, --r);
+                }
+            }
+            Iterator<Entry> recent = overlay.subSet(new Entry(normalized, null, Integer.MIN_VALUE, FIELDS[0]), true,
+                            new Entry(normalized + Character.MAX_VALUE, null, Integer.MIN_VALUE, FIELDS[0]), false)
+                    .stream()
+                    .sorted(Comparator.comparingInt((Entry entry) -> loanCounts[entry.bookId()]).reversed())
+                    .iterator();
+
+            List<BookSuggestionDTO> suggestions = new ArrayList<>(wanted);
+            Set<String> seen = new HashSet<>();
+            int position = nextPosition(nodes);
+            Entry entry = recent.hasNext() ? recent.next() : null;
+            while (suggestions.size() < wanted && (position >= 0 || entry != null)) {
+                String key;
+                BookSuggestionDTO suggestion;
+                if (entry == null || position >= 0 && loanCounts[bookOf(position)] >= loanCounts[entry.bookId()]) {
+                    key = key(texts[position]);
+                    suggestion = new BookSuggestionDTO(texts[position], fieldOf(position), (long) bookOf(position),
+                            loanCounts[bookOf(position)]);
+                    position = nextPosition(nodes);
+                } else {
+                    key = entry.key();
+                    suggestion = new BookSuggestionDTO(entry.text(), entry.field(), (long) entry.bookId(),
+                            loanCounts[entry.bookId()]);
+                    entry = recent.hasNext() ? recent.next() : null;
+                }
+                if (seen.add(suggestion.getField() + key)) {
+                    suggestions.add(suggestion);
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            int bookId = Math.toIntExact(event.bookId());
+            removeBook(bookId);
+            if (event.type() != BookChangedEvent.Type.DELETED) {
+                ensureCapacity(bookId);
+                List<Entry> added = new ArrayList<>(2);
+                addEntry(added, event.title(), bookId, BookSuggestionDTO.Field.TITLE);
+                addEntry(added, event.author(), bookId, BookSuggestionDTO.Field.AUTHOR);
+                overlay.addAll(added);
+                overlayByBook.put(bookId, added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        if (event.type() != LoanChangedEvent.Type.CREATED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int bookId = Math.toIntExact(event.bookId());
+            ensureCapacity(bookId);
+            loanCounts[bookId]++;
+            updateTree(titlePositions[bookId]);
+            updateTree(authorPositions[bookId]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Lê os livros e as contagens de empréstimo com o bloqueio de escrita, para nenhum evento se perder entre
+    // a leitura e a troca. Um empréstimo feito durante a leitura pode ser contado duas vezes; para ordenar
+    // sugestões essa diferença não importa.
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            List<Entry> loaded = new ArrayList<>();
+            Map<String, String> authorTexts = new HashMap<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> books = bookRepository.streamAllSearchFields()) {
+                    books.forEach(row -> {
+                        int bookId = Math.toIntExact(((Number) row[0]).longValue());
+                        // Os livros de um mesmo autor compartilham a mesma String
+                        String author = row[2] == null ? null : authorTexts.computeIfAbsent((String) row[2], text -> text);
+                        addEntry(loaded, (String) row[1], bookId, BookSuggestionDTO.Field.TITLE);
+                        addEntry(loaded, author, bookId, BookSuggestionDTO.Field.AUTHOR);
+                    });
+                }
+            });
+            int maxBookId = loaded.stream().mapToInt(Entry::bookId).max().orElse(0);
+            loanCounts = new int[maxBookId + 1];
+            titlePositions = new int[0];
+            authorPositions = new int[0];
+            for (Object[] row : loanRepository.countLoansByBook()) {
+                int bookId = Math.toIntExact(((Number) row[0]).longValue());
+                ensureCapacity(bookId);
+                loanCounts[bookId] = Math.toIntExact(((Number) row[1]).longValue());
+            }
+            buildSnapshot(loaded);
+            log.info("Índice de autocompletar montado com {} chaves", entries.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.autocomplete.check-interval-ms:600000}")
+    public void rebuildIfDegraded() {
+        lock.writeLock().lock();
+        try {
+            if (overlay.size() > OVERLAY_REBUILD_THRESHOLD || removedCount > entries.length / 10) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Junta snapshot e overlay em um novo snapshot, sem voltar ao banco
+    void rebuild() {
+        lock.writeLock().lock();
+        try {
+            List<Entry> live = new ArrayList<>(entries.length - removedCount + overlay.size());
+            for (int p = 0; p < entries.length; p++) {
+                if (!removed.get(p)) {
+                    live.add(new Entry(key(texts[p]), texts[p], bookOf(p), fieldOf(p)));
+                }
+            }
+            live.addAll(overlay);
+            buildSnapshot(live);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void buildSnapshot(List<Entry> live) {
+        live.sort(ENTRY_ORDER);
+        texts = new String[live.size()];
+        entries = new int[live.size()];
+        Arrays.fill(titlePositions, -1);
+        Arrays.fill(authorPositions, -1);
+        for (int p = 0; p < live.size(); p++) {
+            Entry entry = live.get(p);
+            ensureCapacity(entry.bookId());
+            texts[p] = entry.text();
+            entries[p] = entry.bookId() << 1 | entry.field().ordinal();
+            (entry.field() == BookSuggestionDTO.Field.TITLE ? titlePositions : authorPositions)[entry.bookId()] = p;
+        }
+        leaves = Integer.highestOneBit(Math.max(1, live.size() - 1)) << 1;
+        tree = new int[2 * leaves];
+        for (int i = 0; i < leaves; i++) {
+            tree[leaves + i] = i < live.size() ? i : -1;
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+        removed.clear();
+        removedCount = 0;
+        overlay.clear();
+        overlayByBook.clear();
+    }
+
+    private void addEntry(List<Entry> target, String text, int bookId, BookSuggestionDTO.Field field) {
+        String key = key(text);
+        if (!key.isEmpty()) {
+            target.add(new Entry(key, text, bookId, field));
+        }
+    }
+
+    private void removeBook(int bookId) {
+        if (bookId < titlePositions.length) {
+            removePosition(titlePositions[bookId]);
+            removePosition(authorPositions[bookId]);
+            titlePositions[bookId] = -1;
+            authorPositions[bookId] = -1;
+        }
+        List<Entry> recent = overlayByBook.remove(bookId);
+        if (recent != null) {
+            recent.forEach(overlay::remove);
+        }
+    }
+
+    private void removePosition(int position) {
+        if (position >= 0 && !removed.get(position)) {
+            removed.set(position);
+            removedCount++;
+            updateTree(position);
+        }
+    }
+
+    private void updateTree(int position) {
+        if (position < 0) {
+            return;
+        }
+        for (int node = (position + leaves) >> 1; node >= 1; node >>= 1) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void ensureCapacity(int bookId) {
+        if (bookId < titlePositions.length && bookId < loanCounts.length) {
+            return;
+        }
+        int size = Math.max(bookId + 1, titlePositions.length + (titlePositions.length >> 1));
+        int previous = titlePositions.length;
+        loanCounts = Arrays.copyOf(loanCounts, Math.max(size, loanCounts.length));
+        titlePositions = Arrays.copyOf(titlePositions, size);
+        authorPositions = Arrays.copyOf(authorPositions, size);
+        Arrays.fill(titlePositions, previous, size, -1);
+        Arrays.fill(authorPositions, previous, size, -1);
+    }
+
+    // Remove da fila o nó mais emprestado e desce até a folha; devolve a posição ou -1 quando acabou
+    private int nextPosition(PriorityQueue<Integer> nodes) {
+        while (!nodes.isEmpty()) {
+            int node = nodes.poll();
+            if (node >= leaves) {
+                return tree[node];
+            }
+            offerNode(nodes, 2 * node);
+            offerNode(nodes, 2 * node + 1);
+        }
+        return -1;
+    }
+
+    private void offerNode(PriorityQueue<Integer> nodes, int node) {
+        if (score(tree[node]) >= 0) {
+            nodes.add(node);
+        }
+    }
+
+    private int compareNodes(int a, int b) {
+        int byScore = Integer.compare(score(tree[a]), score(tree[b]));
+        return byScore != 0 ? byScore : Integer.compare(tree[b], tree[a]);
+    }
+
+    // Em caso de empate vence a posição menor, isto é, a chave em ordem alfabética
+    private int better(int a, int b) {
+        int scoreA = score(a);
+        int scoreB = score(b);
+        if (scoreA < 0 && scoreB < 0) {
+            return -1;
+        }
+        return scoreA >= scoreB ? a : b;
+    }
+
+    private int score(int position) {
+        return position < 0 || removed.get(position) ? -1 : loanCounts[bookOf(position)];
+    }
+
+    private int bookOf(int position) {
+        return entries[position] >>> 1;
+    }
+
+    private BookSuggestionDTO.Field fieldOf(int position) {
+        return FIELDS[entries[position] & 1];
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key(texts[middle]).compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int prefixEnd(String prefix, int from) {
+        int low = from;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key(texts[middle]).startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,206 @@
+package com.biblioteca.index;
+
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Bitmap em memória com os ids dos livros DISPONIVEL, para os quiosques sincronizarem sem listar o catálogo.
+// Cada troca de disponibilidade incrementa a versão e entra em um log circular de ids; o cliente manda a última
+// versão que recebeu e leva só os livros que mudaram desde então, ou o bitmap inteiro quando a versão saiu do log.
+@Slf4j
+@Component
+public class AvailabilityIndex {
+    static final int CHANGE_LOG_CAPACITY = 100_000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public enum Kind {
+        FULL,
+        DELTA,
+        NOT_MODIFIED
+    }
+
+    // FULL: um bitmap com os disponíveis. DELTA: o bitmap dos que ficaram disponíveis seguido do bitmap dos que
+    // deixaram de estar. Os dois no formato portável do Roaring, que outras linguagens também leem.
+    public record Availability(Kind kind, long version, byte[] body) {
+    }
+
+    // Livros que trocaram de disponibilidade entre duas versões, separados pelo estado atual de cada um
+    public record Changes(long version, RoaringBitmap added, RoaringBitmap removed) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private record Payload(long version, byte[] body) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap available = new RoaringBitmap();
+    // changes[v % CHANGE_LOG_CAPACITY] é o livro alterado na versão v, para as últimas logged versões
+    private final int[] changes = new int[CHANGE_LOG_CAPACITY];
+    private int logged;
+    private long version;
+    // A consulta do status e a aplicação no bitmap precisam acontecer na mesma ordem entre eventos concorrentes.
+    // Lock e não synchronized: no Java 21 uma virtual thread que faz JDBC dentro de synchronized prende a thread portadora.
+    private final Lock refreshLock = new ReentrantLock();
+    private volatile Payload fullPayload;
+
+    public Availability getAvailability(Long since) {
+        lock.readLock().lock();
+        try {
+            if (since != null && since == version) {
+                return new Availability(Kind.NOT_MODIFIED, version, new byte[0]);
+            }
+            if (since == null || !inLog(since)) {
+                return new Availability(Kind.FULL, version, full());
+            }
+            Changes changes = changes(since);
+            return new Availability(Kind.DELTA, version, serialize(changes.added(), changes.removed()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Retorna null quando a versão já saiu do log ou é de outra carga do índice
+    public Changes changesSince(long since) {
+        lock.readLock().lock();
+        try {
+            return inLog(since) ? changes(since) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean inLog(long since) {
+        return since <= version && since >= version - logged;
+    }
+
+    private Changes changes(long since) {
+        RoaringBitmap changed = new RoaringBitmap();
+        for (long v = since + 1; v <= version; v++) {
+            changed.add(changes[slot(v)]);
+        }
+        return new Changes(version, RoaringBitmap.and(changed, available), RoaringBitmap.andNot(changed, available));
+    }
+
+    // Chamado com o bloqueio de leitura: o payload completo é serializado uma vez por versão
+    private byte[] full() {
+        Payload payload = fullPayload;
+        if (payload == null || payload.version() != version) {
+            payload = new Payload(version, serialize(available.clone()));
+            fullPayload = payload;
+        }
+        return payload.body();
+    }
+
+    private static byte[] serialize(RoaringBitmap... bitmaps) {
+        int size = 0;
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.runOptimize();
+            size += bitmap.serializedSizeInBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.serialize(buffer);
+        }
+        return buffer.array();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        boolean isAvailable = event.type() != BookChangedEvent.Type.DELETED && event.status() == BookStatus.DISPONIVEL;
+        refreshLock.lock();
+        try {
+            set(event.bookId(), isAvailable);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // O empréstimo altera o status com um UPDATE condicional, então o status atual é lido depois do commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        refreshLock.lock();
+        try {
+            boolean isAvailable = bookRepository.findStatusById(event.bookId())
+                    .map(status -> status == BookStatus.DISPONIVEL)
+                    .orElse(false);
+            set(event.bookId(), isAvailable);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // A versão parte do relógio (em milésimos de milissegundo) a cada carga, para que um cliente com a versão
+    // de antes de um reinício não receba um delta que não corresponde ao bitmap novo
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            available.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Long> ids = bookRepository.streamAvailableIds()) {
+                    ids.forEach(id -> available.add(Math.toIntExact(id)));
+                }
+            });
+            available.runOptimize();
+            logged = 0;
+            version = Math.max(version + 1, System.currentTimeMillis() * 1000);
+            fullPayload = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de disponibilidade carregado com {} livros disponíveis", available.getLongCardinality());
+    }
+
+    // Só registra uma versão nova quando a disponibilidade do livro de fato muda
+    private void set(Long bookId, boolean isAvailable) {
+        int id = Math.toIntExact(bookId);
+        lock.writeLock().lock();
+        try {
+            boolean changed = isAvailable ? available.checkedAdd(id) : available.checkedRemove(id);
+            if (changed) {
+                version++;
+                changes[slot(version)] = id;
+                logged = Math.min(logged + 1, CHANGE_LOG_CAPACITY);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int slot(long version) {
+        return (int) Math.floorMod(version, (long) CHANGE_LOG_CAPACITY);
+    }
+}
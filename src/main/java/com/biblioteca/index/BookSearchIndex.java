@@ -0,0 +1,259 @@
+package com.biblioteca.index;
+
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Índice invertido em memória sobre título e autor dos livros.
+// Cada termo guarda um bitmap com os ids dos livros que o contêm no título e outro para o autor;
+// a busca cruza os bitmaps dos termos da consulta (todos precisam aparecer) e ordena pelo IDF dos
+// termos encontrados, com peso maior para o título. O índice é atualizado pelos BookChangedEvent depois do commit.
+@Slf4j
+@Component
+public class BookSearchIndex {
+    static final double TITLE_WEIGHT = 2.0;
+    static final double AUTHOR_WEIGHT = 1.0;
+
+    // Palavras frequentes demais para ajudar na busca; ficariam em quase todos os bitmaps
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "as", "o", "os", "e", "de", "da", "das", "do", "dos", "em", "na", "nas", "no", "nos",
+            "um", "uma", "uns", "umas", "por", "para", "com", "the", "of", "and");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Term> terms = new HashMap<>();
+    // Termos de cada livro indexado, para remover as entradas antigas na atualização e na exclusão
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    public record SearchHits(List<Long> bookIds, long total) {
+    }
+
+    private static final class Term {
+        final String text;
+        final RoaringBitmap title = new RoaringBitmap();
+        final RoaringBitmap author = new RoaringBitmap();
+
+        Term(String text) {
+            this.text = text;
+        }
+
+        boolean isEmpty() {
+            return title.isEmpty() && author.isEmpty();
+        }
+    }
+
+    private record Document(Term[] title, Term[] author) {
+    }
+
+    // Termos distintos do texto normalizado, sem as stop words: "Memórias Póstumas" -> [memorias, postumas]
+    static List<String> tokenize(String text) {
+        String folded = TextNormalizer.fold(text);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split(" ")) {
+            if (!STOP_WORDS.contains(token) && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // O score de um livro só depende de em quais campos cada termo aparece, então os candidatos são
+    // separados em grupos de mesmo score com operações de bitmap, sem calcular livro a livro.
+    // Dentro do grupo a ordem é a do id, e a página é lida direto do bitmap do grupo.
+    public SearchHits search(String query, long offset, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            List<Term> queryTerms = new ArrayList<>(queryTokens.size());
+            for (String token : queryTokens) {
+                Term term = terms.get(token);
+                if (term == null) {
+                    return new SearchHits(List.of(), 0);
+                }
+                queryTerms.add(term);
+            }
+            double[] idf = new double[queryTerms.size()];
+            RoaringBitmap candidates = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                Term term = queryTerms.get(i);
+                RoaringBitmap matches = RoaringBitmap.or(term.title, term.author);
+                idf[i] = Math.log(1.0 + (double) documents.size() / matches.getCardinality());
+                if (candidates == null) {
+                    candidates = matches;
+                } else {
+                    candidates.and(matches);
+                }
+            }
+            int total = candidates.getCardinality();
+            if (offset >= total || limit <= 0) {
+                return new SearchHits(List.of(), total);
+            }
+
+            Map<Double, RoaringBitmap> groups = Map.of(0.0, candidates);
+            for (int i = 0; i < queryTerms.size(); i++) {
+                Term term = queryTerms.get(i);
+                Map<Double, RoaringBitmap> next = new HashMap<>();
+                for (Map.Entry<Double, RoaringBitmap> group : groups.entrySet()) {
+                    RoaringBitmap inTitle = RoaringBitmap.and(group.getValue(), term.title);
+                    RoaringBitmap onlyAuthor = RoaringBitmap.andNot(group.getValue(), inTitle);
+                    RoaringBitmap titleAndAuthor = RoaringBitmap.and(inTitle, term.author);
+                    inTitle.andNot(titleAndAuthor);
+                    addGroup(next, group.getKey() + (TITLE_WEIGHT + AUTHOR_WEIGHT) * idf[i], titleAndAuthor);
+                    addGroup(next, group.getKey() + TITLE_WEIGHT * idf[i], inTitle);
+                    addGroup(next, group.getKey() + AUTHOR_WEIGHT * idf[i], onlyAuthor);
+                }
+                groups = next;
+            }
+
+            List<Long> bookIds = new ArrayList<>(limit);
+            long skip = offset;
+            List<Double> scores = new ArrayList<>(groups.keySet());
+            scores.sort(Comparator.reverseOrder());
+            for (Double score : scores) {
+                RoaringBitmap group = groups.get(score);
+                int cardinality = group.getCardinality();
+                if (skip >= cardinality) {
+                    skip -= cardinality;
+                    continue;
+                }
+                PeekableIntIterator ids = group.getIntIterator();
+                ids.advanceIfNeeded(group.select((int) skip));
+                skip = 0;
+                while (ids.hasNext() && bookIds.size() < limit) {
+                    bookIds.add((long) ids.next());
+                }
+                if (bookIds.size() == limit) {
+                    break;
+                }
+            }
+            return new SearchHits(bookIds, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addGroup(Map<Double, RoaringBitmap> groups, double score, RoaringBitmap ids) {
+        if (!ids.isEmpty()) {
+            groups.merge(score, ids, (a, b) -> RoaringBitmap.or(a, b));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.DELETED) {
+            remove(event.bookId());
+        } else {
+            index(event.bookId(), event.title(), event.author());
+        }
+    }
+
+    // Monta o índice lendo os livros em streaming. Os eventos que chegam durante a leitura esperam o
+    // bloqueio e são aplicados depois; como index() substitui a entrada anterior, reaplicar é seguro.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        AtomicLong loaded = new AtomicLong();
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> books = bookRepository.streamAllSearchFields()) {
+                    books.forEach(row -> {
+                        put(((Number) row[0]).longValue(), (String) row[1], (String) row[2]);
+                        loaded.incrementAndGet();
+                    });
+                }
+            });
+            terms.values().forEach(term -> {
+                term.title.runOptimize();
+                term.author.runOptimize();
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de busca montado com {} livros e {} termos", loaded.get(), terms.size());
+    }
+
+    public void index(Long bookId, String title, String author) {
+        lock.writeLock().lock();
+        try {
+            put(bookId, title, author);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(Math.toIntExact(bookId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Os bitmaps usam int; os ids do banco cabem nesse intervalo e toIntExact falha se um dia não couberem
+    private void put(Long bookId, String title, String author) {
+        int id = Math.toIntExact(bookId);
+        removeDocument(id);
+        Term[] titleTerms = addPostings(id, tokenize(title), true);
+        Term[] authorTerms = addPostings(id, tokenize(author), false);
+        documents.put(id, new Document(titleTerms, authorTerms));
+    }
+
+    private Term[] addPostings(int id, List<String> tokens, boolean title) {
+        Term[] added = new Term[tokens.size()];
+        for (int i = 0; i < added.length; i++) {
+            Term term = terms.computeIfAbsent(tokens.get(i), Term::new);
+            (title ? term.title : term.author).add(id);
+            added[i] = term;
+        }
+        return added;
+    }
+
+    private void removeDocument(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (Term term : document.title()) {
+            term.title.remove(id);
+            discardIfEmpty(term);
+        }
+        for (Term term : document.author()) {
+            term.author.remove(id);
+            discardIfEmpty(term);
+        }
+    }
+
+    private void discardIfEmpty(Term term) {
+        if (term.isEmpty()) {
+            terms.remove(term.text, term);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.biblioteca.index;
+
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Resolve ISBN -> id do livro sem ir ao banco nos casos comuns:
+// - o filtro de Bloom com todos os ISBNs cadastrados responde os ISBNs fora do catálogo;
+// - o near cache guarda os ids dos ISBNs encontrados recentemente.
+// Enquanto o filtro não foi montado, toda consulta vai ao banco.
+@Slf4j
+@Component
+public class IsbnIndex {
+    static final double FALSE_POSITIVE_RATE = 0.01;
+    static final long MINIMUM_CAPACITY = 10_000;
+    static final long NEAR_CACHE_MAXIMUM_SIZE = 100_000;
+    static final String NEGATIVE_LOOKUPS_METRIC = "biblioteca.books.isbn.bloom.negative";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Cache<String, Long> nearCache = Caffeine.newBuilder()
+            .maximumSize(NEAR_CACHE_MAXIMUM_SIZE)
+            .recordStats()
+            .build();
+
+    private volatile BloomFilter filter;
+    // Filtro em reconstrução; recebe também os ISBNs adicionados enquanto o banco é lido
+    private volatile BloomFilter rebuilding;
+    private volatile long capacity;
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong deletions = new AtomicLong();
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // Mesmas chaves de tag que o Spring Boot usa nos caches books e users (cache.manager e name): o Prometheus recusa
+    // medidores com o mesmo nome e chaves diferentes, e os daqueles caches ficariam de fora por serem registrados depois
+    @PostConstruct
+    void bindMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "isbnNearCache",
+                "cache.manager", "isbnIndex", "name", "isbnNearCache");
+    }
+
+    public Optional<Long> findBookId(String isbn) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(isbn)) {
+            meterRegistry.counter(NEGATIVE_LOOKUPS_METRIC).increment();
+            return Optional.empty();
+        }
+        Long cached = nearCache.getIfPresent(isbn);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> bookId = bookRepository.findIdByIsbn(isbn);
+        bookId.ifPresent(id -> nearCache.put(isbn, id));
+        return bookId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> {
+                add(event.isbn());
+                if (event.bookId() != null) {
+                    nearCache.put(event.isbn(), event.bookId());
+                }
+            }
+            case UPDATED -> nearCache.invalidate(event.isbn());
+            case DELETED -> {
+                // O filtro de Bloom não remove valores: o ISBN apagado vira um falso positivo até a próxima reconstrução
+                nearCache.invalidate(event.isbn());
+                deletions.incrementAndGet();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    // Reconstrói quando o filtro passou da capacidade ou acumulou muitos ISBNs apagados,
+    // situações em que a taxa de falso positivo sobe
+    @Scheduled(fixedDelayString = "${biblioteca.isbn-index.check-interval-ms:600000}")
+    public void rebuildIfDegraded() {
+        if (filter != null && (entries.get() > capacity || deletions.get() > capacity / 10)) {
+            rebuild();
+        }
+    }
+
+    // Lock e não synchronized: a reconstrução lê o banco inteiro e, no Java 21, synchronized prenderia
+    // a thread portadora da virtual thread agendada durante toda a leitura
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long bookCount = bookRepository.count();
+            long newCapacity = Math.max(MINIMUM_CAPACITY, bookCount * 2);
+            BloomFilter next = BloomFilter.create(newCapacity, FALSE_POSITIVE_RATE);
+            rebuilding = next;
+            try {
+                AtomicLong loaded = new AtomicLong();
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<String> isbns = bookRepository.streamAllIsbns()) {
+                        isbns.forEach(isbn -> {
+                            next.add(isbn);
+                            loaded.incrementAndGet();
+                        });
+                    }
+                });
+                capacity = newCapacity;
+                entries.set(loaded.get());
+                deletions.set(0);
+                filter = next;
+                log.info("Índice de ISBN reconstruído com {} livros ({} bits)", loaded.get(), next.bitCount());
+            } finally {
+                rebuilding = null;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // rebuilding é lido antes de filter: rebuild() publica filter = next antes de limpar rebuilding, então quem
+    // encontra rebuilding == null já enxerga o filtro novo. Na ordem inversa, um add que pegasse o filtro antigo
+    // logo antes da troca perderia o ISBN se a leitura do banco tivesse começado antes do commit do livro.
+    private void add(String isbn) {
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(isbn);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(isbn);
+            entries.incrementAndGet();
+        }
+    }
+}
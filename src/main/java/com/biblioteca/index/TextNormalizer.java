@@ -0,0 +1,50 @@
+package com.biblioteca.index;
+
+import java.text.Normalizer;
+
+// Forma de comparação de textos usada pelos índices: sem acentos, em minúsculas e com a pontuação
+// trocada por um único espaço. "Memórias Póstumas, de Brás" -> "memorias postumas de bras"
+final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    static String fold(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        // NFD separa a letra do acento, que é descartado abaixo como marca (categoria M do Unicode);
+        // texto só com ASCII não tem o que decompor
+        String decomposed = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && !folded.isEmpty()) {
+                    folded.append(' ');
+                }
+                pendingSpace = false;
+                folded.append(Character.toLowerCase(c));
+            } else if (!isMark(c)) {
+                pendingSpace = true;
+            }
+        }
+        return folded.toString();
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMark(char c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+}
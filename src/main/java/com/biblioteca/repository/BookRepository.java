@@ -2,12 +2,71 @@
 package com.biblioteca.repository;
 
 import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
     Optional<Book> findByIsbn(String isbn);
-}
\ No newline at end of file
+
+    @Query("select b.id from Book b where b.isbn = :isbn")
+    Optional<Long> findIdByIsbn(@Param("isbn") String isbn);
+
+    @Query("select b.isbn from Book b where b.id = :id")
+    Optional<String> findIsbnById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.isbn from Book b")
+    Stream<String> streamAllIsbns();
+
+    // id, title e author de todos os livros, para montar o índice de busca
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id, b.title, b.author from Book b")
+    Stream<Object[]> streamAllSearchFields();
+
+    // ids dos livros disponíveis, para montar o índice de disponibilidade
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id from Book b where b.status = com.biblioteca.entity.BookStatus.DISPONIVEL")
+    Stream<Long> streamAvailableIds();
+
+    @Query("select b.status from Book b where b.id = :id")
+    Optional<BookStatus> findStatusById(@Param("id") Long id);
+
+    @Query("select b.id, b.isbn from Book b where b.isbn in :isbns")
+    List<Object[]> findIdsByIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("select b.id from Book b where b.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    // Reserva uma cópia em um único UPDATE condicional; retorna 0 quando não havia cópia disponível.
+    // Os valores à direita do SET são lidos antes da atualização, então "availableQuantity = 1" indica a última cópia.
+    @Modifying
+    @Query("update Book b set b.availableQuantity = b.availableQuantity - 1, b.version = b.version + 1, " +
+            "b.status = case when b.availableQuantity = 1 then com.biblioteca.entity.BookStatus.INDISPONIVEL else b.status end " +
+            "where b.id = :id and b.status = com.biblioteca.entity.BookStatus.DISPONIVEL and b.availableQuantity > 0")
+    int reserveCopy(@Param("id") Long id);
+
+    // Devolve uma cópia sem nunca ultrapassar totalQuantity; retorna 0 quando o livro já estava completo
+    @Modifying
+    @Query("update Book b set b.availableQuantity = b.availableQuantity + 1, b.version = b.version + 1, " +
+            "b.status = com.biblioteca.entity.BookStatus.DISPONIVEL " +
+            "where b.id = :id and b.availableQuantity < b.totalQuantity")
+    int releaseCopy(@Param("id") Long id);
+}
@@ -0,0 +1,30 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+
+    // Mesmo UPDATE condicional de reserveCopy, enviado em um único batch JDBC.
+    // Cada posição do retorno é 1 quando a cópia do livro correspondente foi reservada e 0 caso contrário;
+    // alguns drivers devolvem Statement.SUCCESS_NO_INFO no lugar da contagem.
+    int[] reserveCopies(List<Long> bookIds);
+
+    // Devolve várias cópias de cada livro com um UPDATE por livro distinto, no mesmo batch JDBC,
+    // sem nunca deixar availableQuantity passar de totalQuantity.
+    void releaseCopies(Map<Long, Integer> copiesByBookId);
+
+    // Insere os livros em um único batch JDBC, sem buscar os ids gerados:
+    // com IDENTITY o Hibernate faria um INSERT por vez.
+    void insertAll(List<Book> books);
+
+    // Página do catálogo projetada direto em BookSummaryDTO: os filtros da Specification e a ordenação
+    // do Pageable viram o mesmo SQL de findAll, mas sem montar entidades Book no contexto de persistência.
+    Page<BookSummaryDTO> findCatalog(Specification<Book> specification, Pageable pageable);
+}
@@ -0,0 +1,103 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final String RESERVE_COPY_SQL = "update book set available_quantity = available_quantity - 1, version = version + 1, " +
+            "status = case when available_quantity = 1 then 'INDISPONIVEL' else status end " +
+            "where id = ? and status = 'DISPONIVEL' and available_quantity > 0";
+
+    private static final String RELEASE_COPIES_SQL = "update book set " +
+            "available_quantity = least(available_quantity + ?, total_quantity), status = 'DISPONIVEL', version = version + 1 " +
+            "where id = ? and available_quantity < total_quantity";
+
+    private static final String INSERT_BOOK_SQL = "insert into book " +
+            "(title, author, isbn, publication_year, total_quantity, available_quantity, status) values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int[] reserveCopies(List<Long> bookIds) {
+        int[][] counts = jdbcTemplate.batchUpdate(RESERVE_COPY_SQL, bookIds, bookIds.size(),
+                (ps, bookId) -> ps.setLong(1, bookId));
+        return counts.length == 0 ? new int[0] : counts[0];
+    }
+
+    @Override
+    public void releaseCopies(Map<Long, Integer> copiesByBookId) {
+        jdbcTemplate.batchUpdate(RELEASE_COPIES_SQL, copiesByBookId.entrySet(), copiesByBookId.size(),
+                (ps, copies) -> {
+                    ps.setInt(1, copies.getValue());
+                    ps.setLong(2, copies.getKey());
+                });
+    }
+
+    @Override
+    public void insertAll(List<Book> books) {
+        jdbcTemplate.batchUpdate(INSERT_BOOK_SQL, books, books.size(), (ps, book) -> {
+            ps.setString(1, book.getTitle());
+            ps.setString(2, book.getAuthor());
+            ps.setString(3, book.getIsbn());
+            ps.setObject(4, book.getPublicationYear(), Types.INTEGER);
+            ps.setInt(5, book.getTotalQuantity());
+            ps.setInt(6, book.getAvailableQuantity());
+            ps.setString(7, book.getStatus().name());
+        });
+    }
+
+    @Override
+    public Page<BookSummaryDTO> findCatalog(Specification<Book> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookSummaryDTO> query = cb.createQuery(BookSummaryDTO.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.construct(BookSummaryDTO.class,
+                book.get("id"), book.get("title"), book.get("author"), book.get("isbn"), book.get("publicationYear"),
+                book.get("totalQuantity"), book.get("availableQuantity"), book.get("status"), book.get("version")));
+        Predicate filters = specification.toPredicate(book, query, cb);
+        if (filters != null) {
+            query.where(filters);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), book, cb));
+        List<BookSummaryDTO> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        // O COUNT só é executado quando a página não revela o total sozinha
+        return PageableExecutionUtils.getPage(content, pageable, () -> countCatalog(specification));
+    }
+
+    private long countCatalog(Specification<Book> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book));
+        Predicate filters = specification.toPredicate(book, query, cb);
+        if (filters != null) {
+            query.where(filters);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
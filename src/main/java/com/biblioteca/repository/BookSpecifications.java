@@ -0,0 +1,32 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Filtros do catálogo. Só entram no WHERE os filtros informados, para o PostgreSQL poder usar o índice de cada um
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> catalog(BookStatus status, String author, Integer yearFrom, Integer yearTo) {
+        List<Specification<Book>> filters = new ArrayList<>();
+        if (status != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (author != null && !author.isBlank()) {
+            filters.add((root, query, cb) -> cb.equal(root.get("author"), author.trim()));
+        }
+        if (yearFrom != null) {
+            filters.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("publicationYear"), yearFrom));
+        }
+        if (yearTo != null) {
+            filters.add((root, query, cb) -> cb.lessThanOrEqualTo(root.get("publicationYear"), yearTo));
+        }
+        return Specification.allOf(filters);
+    }
+}
@@ -1,15 +1,113 @@
 package com.biblioteca.repository;
 
+import com.biblioteca.dto.LoanResponseDTO;
 import com.biblioteca.entity.Loan;
 import com.biblioteca.entity.LoanStatus;
-import com.biblioteca.entity.Users;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Long> {
-    int countByUserAndStatus(Users user, LoanStatus status);
-    List<Loan> findByUserId(Long userId);
-}
\ No newline at end of file
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
+    int STREAM_FETCH_SIZE = 500;
+
+    // Monta o LoanResponseDTO direto do join, sem carregar as associações LAZY de book e user
+    String RESPONSE_PROJECTION = "select new com.biblioteca.dto.LoanResponseDTO(" +
+            "l.id, b.id, b.title, u.id, u.name, l.loanDate, l.expectedReturnDate, l.status) " +
+            "from Loan l join l.book b join l.user u ";
+
+    @Query(RESPONSE_PROJECTION + "where l.id = :id")
+    Optional<LoanResponseDTO> findResponseById(@Param("id") Long id);
+
+    @Query(RESPONSE_PROJECTION + "where l.id in :ids")
+    List<LoanResponseDTO> findResponsesByIds(@Param("ids") Collection<Long> ids);
+
+    // Só um chamador consegue devolver o empréstimo; retorna 0 quando ele já estava DEVOLVIDO
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Loan l set l.status = com.biblioteca.entity.LoanStatus.DEVOLVIDO, l.returnDate = :returnDate " +
+            "where l.id = :id and l.status <> com.biblioteca.entity.LoanStatus.DEVOLVIDO")
+    int markReturned(@Param("id") Long id, @Param("returnDate") LocalDate returnDate);
+
+    // Bloqueia apenas as linhas de loan, para que dois lotes não devolvam o mesmo empréstimo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from Loan l where l.id in :ids")
+    List<Loan> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Pares [id do empréstimo, isbn] dos empréstimos em aberto, do mais antigo para o mais recente
+    @Query("select l.id, b.isbn from Loan l join l.book b " +
+            "where b.isbn in :isbns and l.status <> com.biblioteca.entity.LoanStatus.DEVOLVIDO " +
+            "order by l.loanDate, l.id")
+    List<Object[]> findOpenLoanIdsByIsbn(@Param("isbns") Collection<String> isbns);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Loan l set l.status = com.biblioteca.entity.LoanStatus.DEVOLVIDO, l.returnDate = :returnDate " +
+            "where l.id in :ids and l.status <> com.biblioteca.entity.LoanStatus.DEVOLVIDO")
+    int markAllReturned(@Param("ids") Collection<Long> ids, @Param("returnDate") LocalDate returnDate);
+
+    // Percorre o índice (status, expected_return_date); as linhas já marcadas saem do filtro, então não há cursor
+    @Query("select l.id from Loan l where l.status = com.biblioteca.entity.LoanStatus.ATIVO " +
+            "and l.expectedReturnDate < :today order by l.expectedReturnDate, l.id")
+    List<Long> findOverdueIds(@Param("today") LocalDate today, Limit limit);
+
+    // Só altera quem ainda está ATIVO, para não sobrescrever uma devolução feita entre o select e o update
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Loan l set l.status = com.biblioteca.entity.LoanStatus.ATRASADO " +
+            "where l.id in :ids and l.status = com.biblioteca.entity.LoanStatus.ATIVO")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+
+    // Por usuário: total de empréstimos, não devolvidos e atrasados. Uma consulta para a página inteira;
+    // usuários sem empréstimos não aparecem no resultado.
+    @Query("select l.user.id, count(l), " +
+            "sum(case when l.status <> com.biblioteca.entity.LoanStatus.DEVOLVIDO then 1 else 0 end), " +
+            "sum(case when l.status = com.biblioteca.entity.LoanStatus.ATRASADO then 1 else 0 end) " +
+            "from Loan l where l.user.id in :userIds group by l.user.id")
+    List<Object[]> countLoansByUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Empréstimos não devolvidos de um livro, por usuário: os slots a liberar quando o livro é excluído
+    @Query("select l.user.id, count(l) from Loan l " +
+            "where l.book.id = :bookId and l.status <> com.biblioteca.entity.LoanStatus.DEVOLVIDO group by l.user.id")
+    List<Object[]> countOpenLoansByUser(@Param("bookId") Long bookId);
+
+    // Total de empréstimos (de todos os status) por livro: a popularidade usada no autocompletar
+    @Query("select l.book.id, count(l) from Loan l group by l.book.id")
+    List<Object[]> countLoansByBook();
+
+    @Query(RESPONSE_PROJECTION + "where u.id = :userId order by l.id")
+    List<LoanResponseDTO> findResponsesByUserId(@Param("userId") Long userId);
+
+    @Query(RESPONSE_PROJECTION +
+            "where l.id > :afterId " +
+            "and (:status is null or l.status = :status) " +
+            "and (:from is null or l.loanDate >= :from) " +
+            "and (:to is null or l.loanDate <= :to) " +
+            "order by l.id")
+    List<LoanResponseDTO> findResponsePageAfter(@Param("afterId") Long afterId,
+                                                @Param("status") LoanStatus status,
+                                                @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to,
+                                                Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query(RESPONSE_PROJECTION +
+            "where (:status is null or l.status = :status) " +
+            "and (:from is null or l.loanDate >= :from) " +
+            "and (:to is null or l.loanDate <= :to) " +
+            "order by l.id")
+    Stream<LoanResponseDTO> streamResponses(@Param("status") LoanStatus status,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+}
@@ -0,0 +1,12 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.Loan;
+
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+
+    // Insere os empréstimos em um único batch JDBC (IDENTITY impede o batch pelo Hibernate)
+    // e preenche o id gerado em cada um deles.
+    void insertAll(List<Loan> loans);
+}
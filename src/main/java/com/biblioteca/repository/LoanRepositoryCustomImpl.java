@@ -0,0 +1,52 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.Loan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    private static final String INSERT_LOAN_SQL = "insert into loan " +
+            "(user_id, book_id, loan_date, expected_return_date, status) values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_LOAN_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Loan loan = loans.get(i);
+                        ps.setLong(1, loan.getUser().getId());
+                        ps.setLong(2, loan.getBook().getId());
+                        ps.setObject(3, loan.getLoanDate());
+                        ps.setObject(4, loan.getExpectedReturnDate());
+                        ps.setString(5, loan.getStatus().name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return loans.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < loans.size(); i++) {
+            loans.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+    }
+}
@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<Users, Long> {
+public interface UserRepository extends JpaRepository<Users, Long>, UserRepositoryCustom {
     Optional<Users> findByEmail(String email);
     Optional<Users> findByCpf(String cpf);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.biblioteca.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface UserRepositoryCustom {
+
+    // Ocupa "slots" empréstimos do usuário em um único UPDATE condicional;
+    // retorna false quando o usuário não está ATIVO ou passaria do limite.
+    boolean acquireLoanSlots(Long userId, int slots, int limit);
+
+    // Libera os empréstimos devolvidos de cada usuário em um único batch JDBC, sem deixar o contador negativo.
+    void releaseLoanSlots(Map<Long, Integer> slotsByUserId);
+
+    // Linhas [id do usuário, contador, empréstimos não devolvidos na tabela loan] onde os dois valores divergem.
+    List<long[]> findActiveLoanCountMismatches();
+
+    // Recalcula o contador a partir da tabela loan para os usuários informados.
+    int recountActiveLoans(List<Long> userIds);
+}
@@ -0,0 +1,59 @@
+package com.biblioteca.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String ACQUIRE_SLOTS_SQL = "update users set active_loan_count = active_loan_count + ?, version = version + 1 " +
+            "where id = ? and status = 'ATIVO' and active_loan_count + ? <= ?";
+
+    private static final String RELEASE_SLOTS_SQL = "update users set active_loan_count = greatest(active_loan_count - ?, 0), version = version + 1 " +
+            "where id = ?";
+
+    private static final String MISMATCHES_SQL = "select u.id, u.active_loan_count, count(l.id) from users u " +
+            "left join loan l on l.user_id = u.id and l.status <> 'DEVOLVIDO' " +
+            "group by u.id, u.active_loan_count " +
+            "having u.active_loan_count <> count(l.id)";
+
+    private static final String RECOUNT_SQL = "update users set active_loan_count = " +
+            "(select count(*) from loan l where l.user_id = users.id and l.status <> 'DEVOLVIDO'), version = version + 1 " +
+            "where id in (:ids)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public boolean acquireLoanSlots(Long userId, int slots, int limit) {
+        return jdbcTemplate.update(ACQUIRE_SLOTS_SQL, slots, userId, slots, limit) > 0;
+    }
+
+    @Override
+    public void releaseLoanSlots(Map<Long, Integer> slotsByUserId) {
+        jdbcTemplate.batchUpdate(RELEASE_SLOTS_SQL, slotsByUserId.entrySet(), slotsByUserId.size(),
+                (ps, slots) -> {
+                    ps.setInt(1, slots.getValue());
+                    ps.setLong(2, slots.getKey());
+                });
+    }
+
+    @Override
+    public List<long[]> findActiveLoanCountMismatches() {
+        return jdbcTemplate.query(MISMATCHES_SQL, (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)});
+    }
+
+    @Override
+    public int recountActiveLoans(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return namedParameterJdbcTemplate.update(RECOUNT_SQL, Map.of("ids", userIds));
+    }
+}
@@ -0,0 +1,276 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.AvailabilityChangeDTO;
+import com.biblioteca.index.AvailabilityIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Feed SSE de disponibilidade para os painéis do balcão. Em vez de publicar cada empréstimo, devolução ou edição,
+// o flush agendado lê do AvailabilityIndex o que mudou desde a última versão publicada: uma rajada sobre o mesmo
+// livro vira uma entrada só, com o estado final. O lote é serializado uma vez e compartilhado pelos assinantes.
+@Slf4j
+@Service
+public class AvailabilityFeedService {
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Livros pendentes por assinante lento; acima disso ele recebe "reset" e recarrega o estado
+    @Value("${biblioteca.feed.max-pending:1000}")
+    private int maxPending = 1000;
+
+    @Value("${biblioteca.feed.timeout:30m}")
+    private Duration timeout = Duration.ofMinutes(30);
+
+    private record Batch(long version, RoaringBitmap added, RoaringBitmap removed, String json) {
+    }
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // O envio para um cliente lento bloqueia quando o buffer TCP enche. Cada assinante escreve na sua virtual
+    // thread, então ele não segura o agendador nem os outros; sem nada a enviar, não ocupa thread nenhuma.
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    // Última versão do índice repassada aos assinantes; só o flush altera
+    private long published = -1;
+
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(timeout.toMillis()));
+    }
+
+    // Com Last-Event-ID dentro do log o cliente recebe só o que perdeu; sem ele, ou fora do log, recebe "reset"
+    SseEmitter subscribe(Long lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        // Entra na lista antes de ler o índice, para não perder o que mudar depois. Um flush em andamento pode ter
+        // montado o lote antes desta leitura e entregá-lo depois: o assinante descarta os lotes de versão que ele já
+        // cobriu (ver Subscriber.offer), senão o lote antigo sobrescreveria o estado mais novo dos livros.
+        subscribers.add(subscriber);
+        AvailabilityIndex.Changes changes = lastEventId == null ? null : availabilityIndex.changesSince(lastEventId);
+        if (changes == null) {
+            subscriber.reset(availabilityIndex.version());
+        } else if (!changes.isEmpty()) {
+            subscriber.offer(batch(changes));
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.feed.flush-interval-ms:500}")
+    public void flush() {
+        long version = availabilityIndex.version();
+        if (version == published) {
+            return;
+        }
+        AvailabilityIndex.Changes changes = published < 0 ? null : availabilityIndex.changesSince(published);
+        if (changes == null) {
+            // Índice recarregado ou log de mudanças esgotado: não há como montar o delta
+            published = version;
+            subscribers.forEach(subscriber -> subscriber.reset(version));
+            return;
+        }
+        published = changes.version();
+        if (changes.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        Batch batch = batch(changes);
+        subscribers.forEach(subscriber -> subscriber.offer(batch));
+    }
+
+    // Comentário SSE periódico: mantém a conexão aberta nos proxies e descobre os clientes que já foram embora
+    @Scheduled(fixedDelayString = "${biblioteca.feed.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::ping);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    private Batch batch(AvailabilityIndex.Changes changes) {
+        AvailabilityChangeDTO change = new AvailabilityChangeDTO(changes.version(), ids(changes.added()), ids(changes.removed()));
+        return new Batch(changes.version(), changes.added(), changes.removed(), json(change));
+    }
+
+    private static List<Long> ids(RoaringBitmap bitmap) {
+        List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((int id) -> ids.add((long) id));
+        return ids;
+    }
+
+    private String json(AvailabilityChangeDTO change) {
+        try {
+            return objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(String name, long version, String json) {
+        return SseEmitter.event().id(String.valueOf(version)).name(name).data(json);
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+
+        // Estado protegido pelo monitor do assinante. Enquanto o cliente acompanha, a fila é só o lote compartilhado;
+        // se chega outro lote antes de ele sair, os dois se fundem num mapa livro -> disponível, limitado a maxPending.
+        private Batch batch;
+        private final Map<Integer, Boolean> merged = new TreeMap<>();
+        private boolean reset;
+        private boolean ping;
+        // Maior versão já enfileirada para o cliente, seja por lote ou por reset
+        private long version;
+        private boolean sending;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Batch next) {
+            synchronized (this) {
+                // Cada lote traz o estado dos livros na sua versão; um lote que não passa da versão já recebida
+                // (pelo catch-up do subscribe ou por um reset) traria estados antigos
+                if (next.version() <= version) {
+                    return;
+                }
+                version = next.version();
+                if (!reset) {
+                    if (batch == null && merged.isEmpty()) {
+                        batch = next;
+                    } else {
+                        if (batch != null) {
+                            merge(batch);
+                            batch = null;
+                        }
+                        merge(next);
+                        if (merged.size() > maxPending) {
+                            merged.clear();
+                            reset = true;
+                        }
+                    }
+                }
+                if (!startSending()) {
+                    return;
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        void reset(long current) {
+            synchronized (this) {
+                version = Math.max(version, current);
+                batch = null;
+                merged.clear();
+                reset = true;
+                if (!startSending()) {
+                    return;
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        void ping() {
+            synchronized (this) {
+                ping = true;
+                if (!startSending()) {
+                    return;
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        private void merge(Batch source) {
+            source.added().forEach((int id) -> merged.put(id, true));
+            source.removed().forEach((int id) -> merged.put(id, false));
+        }
+
+        // Só uma thread envia por assinante, para os eventos saírem na ordem
+        private boolean startSending() {
+            if (sending || closed) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = next();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado ou emitter já concluído; o container encerra a requisição
+                    log.debug("Assinante do feed de disponibilidade removido: {}", e.getMessage());
+                    synchronized (this) {
+                        closed = true;
+                    }
+                    subscribers.remove(this);
+                    return;
+                }
+            }
+        }
+
+        // Chamado com o monitor. O reset descarta o resto, e o ping só sai quando não há evento que o substitua.
+        private SseEmitter.SseEventBuilder next() {
+            if (reset) {
+                reset = false;
+                ping = false;
+                return event("reset", version, json(new AvailabilityChangeDTO(version, List.of(), List.of())));
+            }
+            if (batch != null) {
+                Batch next = batch;
+                batch = null;
+                ping = false;
+                return event("availability", next.version(), next.json());
+            }
+            if (!merged.isEmpty()) {
+                List<Long> available = new ArrayList<>();
+                List<Long> unavailable = new ArrayList<>();
+                merged.forEach((id, isAvailable) -> (isAvailable ? available : unavailable).add((long) id));
+                merged.clear();
+                ping = false;
+                return event("availability", version, json(new AvailabilityChangeDTO(version, available, unavailable)));
+            }
+            if (ping) {
+                ping = false;
+                return SseEmitter.event().comment("ping");
+            }
+            return null;
+        }
+    }
+}
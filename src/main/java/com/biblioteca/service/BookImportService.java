@@ -0,0 +1,316 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.BookImportResultDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Importa livros lendo o arquivo aos poucos: cada lote de IMPORT_BATCH_SIZE registros confere os ISBNs
+// em uma consulta e é inserido em um batch JDBC, na própria transação.
+@Slf4j
+@Service
+public class BookImportService {
+    static final int IMPORT_BATCH_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final List<String> REQUIRED_CSV_COLUMNS =
+            List.of("title", "author", "isbn", "totalQuantity", "availableQuantity");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // CSV com cabeçalho; as colunas são encontradas pelo nome e publicationYear é opcional
+    public BookImportResultDTO importCsv(InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalStateException("O arquivo CSV está vazio.");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+        }
+        for (String column : REQUIRED_CSV_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalStateException("Coluna obrigatória ausente no CSV: " + column);
+            }
+        }
+
+        Importer importer = new Importer();
+        List<String> row;
+        while ((row = reader.next()) != null) {
+            if (row.size() == 1 && row.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                importer.add(toBook(row, columns));
+            } catch (NumberFormatException e) {
+                importer.reject(e.getMessage());
+            }
+        }
+        return importer.finish();
+    }
+
+    // Lista JSON de livros, lida objeto a objeto com o parser de streaming do Jackson. Um registro com campo de tipo
+    // errado é recusado sozinho, como uma linha inválida do CSV; se o próprio JSON quebra no meio do arquivo, a leitura
+    // para ali e o resultado informa o que já foi inserido, porque os lotes anteriores já estão no banco.
+    public BookImportResultDTO importJson(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalStateException("O arquivo JSON deve conter uma lista de livros.");
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Arquivo JSON inválido: " + e.getOriginalMessage());
+            }
+            Importer importer = new Importer();
+            JsonStreamContext list = parser.getParsingContext();
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        importer.reject("Arquivo JSON terminou antes do fim da lista; o restante não foi lido.");
+                        break;
+                    }
+                    try {
+                        importer.add(objectMapper.readValue(parser, Book.class));
+                    } catch (JsonMappingException e) {
+                        importer.reject(mappingError(e));
+                        skipToEndOfRecord(parser, list);
+                    }
+                }
+            } catch (StreamReadException e) {
+                importer.reject("Arquivo JSON inválido: " + e.getOriginalMessage() + "; o restante não foi lido.");
+            }
+            return importer.finish();
+        }
+    }
+
+    private static String mappingError(JsonMappingException e) {
+        List<JsonMappingException.Reference> path = e.getPath();
+        if (!path.isEmpty() && path.get(path.size() - 1).getFieldName() != null) {
+            return "Valor inválido para " + path.get(path.size() - 1).getFieldName();
+        }
+        return "Registro inválido: " + e.getOriginalMessage();
+    }
+
+    // Avança até o END_OBJECT do registro recusado, voltando ao contexto da lista
+    private static void skipToEndOfRecord(JsonParser parser, JsonStreamContext list) throws IOException {
+        while (parser.getParsingContext() != list) {
+            if (parser.nextToken() == null) {
+                return;
+            }
+        }
+    }
+
+    private Book toBook(List<String> row, Map<String, Integer> columns) {
+        Book book = new Book();
+        book.setTitle(value(row, columns, "title"));
+        book.setAuthor(value(row, columns, "author"));
+        book.setIsbn(value(row, columns, "isbn"));
+        book.setPublicationYear(intValue(row, columns, "publicationYear"));
+        book.setTotalQuantity(intValue(row, columns, "totalQuantity"));
+        book.setAvailableQuantity(intValue(row, columns, "availableQuantity"));
+        return book;
+    }
+
+    private static String value(List<String> row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.size() || row.get(index).isBlank()) {
+            return null;
+        }
+        return row.get(index).trim();
+    }
+
+    private static Integer intValue(List<String> row, Map<String, Integer> columns, String column) {
+        String value = value(row, columns, column);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Valor inválido para " + column + ": " + value);
+        }
+    }
+
+    private String validate(Book book) {
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+        if (book.getAvailableQuantity() > book.getTotalQuantity()) {
+            return "availableQuantity não pode ser maior que totalQuantity.";
+        }
+        return null;
+    }
+
+    private class Importer {
+        private final BookImportResultDTO result = new BookImportResultDTO();
+        private final long startedAt = System.nanoTime();
+        private final List<Book> pending = new ArrayList<>(IMPORT_BATCH_SIZE);
+        private final List<Integer> pendingRecords = new ArrayList<>(IMPORT_BATCH_SIZE);
+        private int record;
+
+        void add(Book book) {
+            record++;
+            String error = validate(book);
+            if (error != null) {
+                addError(record, error);
+                return;
+            }
+            pending.add(book);
+            pendingRecords.add(record);
+            if (pending.size() == IMPORT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(String message) {
+            addError(++record, message);
+        }
+
+        BookImportResultDTO finish() {
+            flush();
+            long elapsedNanos = System.nanoTime() - startedAt;
+            result.setElapsedMillis(elapsedNanos / 1_000_000);
+            result.setRowsPerSecond(elapsedNanos == 0 ? 0 : result.getImported() * 1_000_000_000.0 / elapsedNanos);
+            log.info("Importação de livros concluída: {} inseridos, {} rejeitados em {} ms ({} registros/s)",
+                    result.getImported(), result.getRejected(), result.getElapsedMillis(), Math.round(result.getRowsPerSecond()));
+            return result;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<Integer, String> rejected;
+            try {
+                rejected = transactionTemplate.execute(status -> insertPending());
+            } catch (DuplicateKeyException e) {
+                // Outro cadastro usou um dos ISBNs entre a conferência e o INSERT; a nova conferência já o encontra
+                rejected = transactionTemplate.execute(status -> insertPending());
+            }
+            result.setImported(result.getImported() + pending.size() - rejected.size());
+            rejected.forEach(this::addError);
+            pending.clear();
+            pendingRecords.clear();
+        }
+
+        // Retorna os registros recusados do lote, pelo número do registro no arquivo
+        private Map<Integer, String> insertPending() {
+            Set<String> existing = bookRepository.findExistingIsbns(pending.stream().map(Book::getIsbn).toList());
+            Set<String> seen = new HashSet<>();
+            Map<Integer, String> rejected = new TreeMap<>();
+            List<Book> books = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                Book book = pending.get(i);
+                if (existing.contains(book.getIsbn())) {
+                    rejected.put(pendingRecords.get(i), "ISBN já cadastrado: " + book.getIsbn());
+                } else if (!seen.add(book.getIsbn())) {
+                    rejected.put(pendingRecords.get(i), "ISBN repetido no arquivo: " + book.getIsbn());
+                } else {
+                    book.setStatus(BookService.statusFor(book.getAvailableQuantity()));
+                    books.add(book);
+                }
+            }
+            bookRepository.insertAll(books);
+            publishCreated(books);
+            return rejected;
+        }
+
+        // O batch JDBC não devolve os ids gerados; uma consulta por lote os busca para os índices em memória
+        private void publishCreated(List<Book> books) {
+            if (books.isEmpty()) {
+                return;
+            }
+            Map<String, Long> ids = new HashMap<>();
+            for (Object[] row : bookRepository.findIdsByIsbns(books.stream().map(Book::getIsbn).toList())) {
+                ids.put((String) row[1], (Long) row[0]);
+            }
+            books.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.created(
+                    ids.get(book.getIsbn()), book.getIsbn(), book.getTitle(), book.getAuthor(), book.getStatus())));
+        }
+
+        private void addError(int record, String message) {
+            result.setRejected(result.getRejected() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add("Registro " + record + ": " + message);
+            }
+        }
+    }
+
+    // Leitor de CSV no formato RFC 4180: campos entre aspas podem conter vírgulas, aspas dobradas e quebras de linha
+    private static class CsvReader {
+        private final Reader reader;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalStateException("Arquivo CSV inválido: aspas não fechadas.");
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+}
@@ -1,41 +1,138 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.CacheConfig;
+import com.biblioteca.config.EntityCacheEvictor;
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.dto.BookSummaryDTO;
 import com.biblioteca.entity.Book;
 import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.index.AutocompleteIndex;
+import com.biblioteca.index.AvailabilityIndex;
+import com.biblioteca.index.BookSearchIndex;
+import com.biblioteca.index.IsbnIndex;
 import com.biblioteca.repository.BookRepository;
+import com.biblioteca.repository.BookSpecifications;
+import com.biblioteca.repository.LoanRepository;
+import com.biblioteca.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.biblioteca.exception.ResourceNotFoundException;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Timed("biblioteca.service")
 public class BookService {
     @Autowired
     private BookRepository bookRepository;
+    @Autowired
+    private IsbnIndex isbnIndex;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private LoanRepository loanRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    private static final String DEFAULT_SORT_PROPERTY = "title";
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "title", "author", "publicationYear");
+
+    // Regra única de status usada no cadastro, na atualização e na importação em lote
+    static BookStatus statusFor(int availableQuantity) {
+        return availableQuantity > 0 ? BookStatus.DISPONIVEL : BookStatus.INDISPONIVEL;
+    }
 
     @Transactional
     public Book createBook(Book book) {
-        if (book.getAvailableQuantity() > 0) {
-            book.setStatus(BookStatus.DISPONIVEL);
-        } else {
-            book.setStatus(BookStatus.INDISPONIVEL);
-        }
-        return bookRepository.save(book);
+        book.setStatus(statusFor(book.getAvailableQuantity()));
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.created(savedBook.getId(), savedBook.getIsbn(), savedBook.getTitle(), savedBook.getAuthor(), savedBook.getStatus()));
+        return savedBook;
     }
 
+    // A disponibilidade exibida aqui pode ficar atrás do banco entre o commit do empréstimo e o evict logo depois
+    // (ver CacheConfig); o checkout nunca lê deste cache, ele reserva a cópia com um UPDATE condicional.
+    @Cacheable(cacheNames = CacheConfig.BOOKS, unless = "#result == null")
     @Transactional(readOnly = true)
     public Optional<Book> findBookById(Long id) {
         return bookRepository.findById(id);
     }
 
+    // ISBNs fora do catálogo são respondidos pelo IsbnIndex sem consultar o banco
+    public Optional<Long> findBookIdByIsbn(String isbn) {
+        return isbnIndex.findBookId(isbn);
+    }
+
+    // Atendido só pela memória: é chamado a cada tecla digitada na busca
+    public List<BookSuggestionDTO> suggestBooks(String prefix, int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+
+    // Bitmap dos livros disponíveis para os quiosques; com a versão recebida antes, só o que mudou
+    public AvailabilityIndex.Availability getAvailability(Long since) {
+        return availabilityIndex.getAvailability(since);
+    }
+
+    // A ordem e o total vêm do índice em memória; o banco só carrega os livros da página,
+    // assim a disponibilidade retornada é sempre a atual
+    @Transactional(readOnly = true)
+    public Page<Book> searchBooks(String query, Pageable pageable) {
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+        if (hits.bookIds().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, hits.total());
+        }
+        Map<Long, Book> books = bookRepository.findAllById(hits.bookIds()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = hits.bookIds().stream().map(books::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, hits.total());
+    }
+
+    // Ordenação estável: o id desempata livros com o mesmo valor, para nenhum livro se repetir ou sumir entre páginas
     @Transactional(readOnly = true)
-    public List<Book> findAllBooks() {
-        return bookRepository.findAll();
+    public Page<BookSummaryDTO> findBooks(BookStatus status, String author, Integer yearFrom, Integer yearTo, Pageable pageable) {
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalStateException("yearFrom não pode ser maior que yearTo.");
+        }
+        Sort sort = pageable.getSortOr(Sort.by(DEFAULT_SORT_PROPERTY));
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalStateException("Não é possível ordenar os livros por: " + order.getProperty());
+            }
+        }
+        if (sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
+        }
+        return bookRepository.findCatalog(BookSpecifications.catalog(status, author, yearFrom, yearTo),
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
     }
 
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#id")
     @Transactional
     public Book updateBook(Long id, Book book) {
         Book existingBook = findBookById(id).orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
@@ -43,21 +140,27 @@ public class BookService {
             existingBook.setAuthor(book.getAuthor());
             existingBook.setPublicationYear(book.getPublicationYear());
             existingBook.setAvailableQuantity(book.getAvailableQuantity());
-
-            if (book.getAvailableQuantity() > 0) {
-                existingBook.setStatus(BookStatus.DISPONIVEL);
-            } else {
-                existingBook.setStatus(BookStatus.INDISPONIVEL);
-            }
-            return bookRepository.save(existingBook);
+            existingBook.setStatus(statusFor(book.getAvailableQuantity()));
+            Book savedBook = bookRepository.save(existingBook);
+            eventPublisher.publishEvent(BookChangedEvent.updated(savedBook.getId(), savedBook.getIsbn(), savedBook.getTitle(), savedBook.getAuthor(), savedBook.getStatus()));
+            return savedBook;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.BOOKS)
     @Transactional
     public void deleteBook(Long id) {
-        if (!bookRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Book not found");
+        String isbn = bookRepository.findIsbnById(id).orElseThrow(() -> new ResourceNotFoundException("Book not found"));
+        // Os empréstimos do livro são removidos em cascata; os que estavam em aberto ainda ocupam slots dos usuários
+        Map<Long, Integer> slotsByUserId = new HashMap<>();
+        for (Object[] row : loanRepository.countOpenLoansByUser(id)) {
+            slotsByUserId.put((Long) row[0], ((Number) row[1]).intValue());
         }
         bookRepository.deleteById(id);
+        if (!slotsByUserId.isEmpty()) {
+            userRepository.releaseLoanSlots(slotsByUserId);
+            entityCacheEvictor.evictUsers(slotsByUserId.keySet());
+        }
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id, isbn));
     }
 
 }
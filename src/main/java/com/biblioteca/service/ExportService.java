@@ -0,0 +1,202 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.ExportFormat;
+import com.biblioteca.entity.LoanStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Exporta as tabelas linha a linha direto do ResultSet para a resposta, sem montar listas nem carregar entidades
+@Service
+public class ExportService {
+    static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String LOANS_SQL = "select l.id as \"id\", b.id as \"bookId\", b.title as \"bookTitle\", " +
+            "b.isbn as \"bookIsbn\", u.id as \"userId\", u.name as \"userName\", l.loan_date as \"loanDate\", " +
+            "l.expected_return_date as \"expectedReturnDate\", l.return_date as \"returnDate\", l.status as \"status\" " +
+            "from loan l join book b on b.id = l.book_id join users u on u.id = l.user_id";
+
+    private static final String BOOKS_SQL = "select id as \"id\", title as \"title\", author as \"author\", " +
+            "isbn as \"isbn\", publication_year as \"publicationYear\", total_quantity as \"totalQuantity\", " +
+            "available_quantity as \"availableQuantity\", status as \"status\" from book order by id";
+
+    private static final String USERS_SQL = "select id as \"id\", name as \"name\", email as \"email\", cpf as \"cpf\", " +
+            "register_date as \"registerDate\", status as \"status\", active_loan_count as \"activeLoanCount\" " +
+            "from users order by id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // No PostgreSQL o fetch size só limita a memória com autocommit desligado, por isso os métodos são transacionais
+    @Transactional(readOnly = true)
+    public void exportLoans(LoanStatus status, LocalDate from, LocalDate to, ExportFormat format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(LOANS_SQL);
+        List<Object> args = new ArrayList<>();
+        // Só entram no WHERE os filtros informados, evitando parâmetros nulos sem tipo no PostgreSQL
+        String separator = " where ";
+        if (status != null) {
+            sql.append(separator).append("l.status = ?");
+            args.add(status.name());
+            separator = " and ";
+        }
+        if (from != null) {
+            sql.append(separator).append("l.loan_date >= ?");
+            args.add(from);
+            separator = " and ";
+        }
+        if (to != null) {
+            sql.append(separator).append("l.loan_date <= ?");
+            args.add(to);
+        }
+        sql.append(" order by l.id");
+        export(sql.toString(), args, format, out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBooks(ExportFormat format, OutputStream out) throws IOException {
+        export(BOOKS_SQL, List.of(), format, out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportUsers(ExportFormat format, OutputStream out) throws IOException {
+        export(USERS_SQL, List.of(), format, out);
+    }
+
+    private void export(String sql, List<Object> args, ExportFormat format, OutputStream out) throws IOException {
+        RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, rs -> {
+                // O cabeçalho é escrito mesmo sem linhas, para o CSV vazio ainda trazer as colunas
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columns = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                }
+                Object[] values = new Object[columns.length];
+                try {
+                    writer.writeHeader(columns);
+                    while (rs.next()) {
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = readValue(rs, i + 1);
+                        }
+                        writer.writeRow(values);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    private static Object readValue(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        return value instanceof java.sql.Date date ? date.toLocalDate() : value;
+    }
+
+    private interface RowWriter {
+        void writeHeader(String[] columns) throws IOException;
+
+        void writeRow(Object[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private String[] columns;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            // O buffer do gerador é fixo e é descarregado no stream conforme enche
+            generator = objectMapper.createGenerator(out);
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void writeHeader(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void writeRow(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                generator.writeObject(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void writeHeader(String[] columns) throws IOException {
+            writeRow(columns);
+        }
+
+        @Override
+        public void writeRow(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writer.write(escape(values[i].toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180: aspas em volta quando o valor tem vírgula, aspas ou quebra de linha, dobrando as aspas internas
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -1,24 +1,50 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.EntityCacheEvictor;
+import com.biblioteca.dto.CursorPageDTO;
+import com.biblioteca.dto.LoanBatchItemResultDTO;
+import com.biblioteca.dto.LoanBatchRequestDTO;
+import com.biblioteca.dto.LoanReturnBatchRequestDTO;
 import com.biblioteca.dto.LoanRequestDTO;
 import com.biblioteca.dto.LoanResponseDTO;
 import com.biblioteca.entity.*;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.exception.BusinessError;
+import com.biblioteca.exception.BusinessRuleException;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.repository.BookRepository;
 import com.biblioteca.repository.LoanRepository;
 import com.biblioteca.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed("biblioteca.service")
 public class LoanService {
+    static final String REJECTED_METRIC = "biblioteca.loans.rejected";
 
     private static final int LOAN_PERIOD_DAYS = 14;
+    private static final int MAX_ACTIVE_LOANS = 3;
+
+    // Tag "reason" de biblioteca.loans.rejected
+    enum RejectionReason {
+        USER_NOT_FOUND,
+        INACTIVE_USER,
+        LIMIT_EXCEEDED,
+        BOOK_NOT_FOUND,
+        BOOK_UNAVAILABLE
+    }
 
     @Autowired
     private LoanRepository loanRepository;
@@ -26,74 +52,229 @@ public class LoanService {
     private UserRepository userRepository;
     @Autowired
     private BookRepository bookRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Transactional()
     public LoanResponseDTO createLoan(LoanRequestDTO loanRequest) {
-        Users user = userRepository.findById(loanRequest.getUserId())
-                .orElseThrow(() -> new ResourceNotFoundException("Usuário não encontrado com ID: " + loanRequest.getUserId()));
-
-        Book book = bookRepository.findById(loanRequest.getBookId())
-                .orElseThrow(() -> new ResourceNotFoundException("Livro não encontrado com ID: " + loanRequest.getBookId()));
+        // O usuário pode vir do cache: status e limite são conferidos de novo no UPDATE de acquireLoanSlots
+        Users user = userService.findUserById(loanRequest.getUserId())
+                .orElseThrow(() -> rejection("createLoan", RejectionReason.USER_NOT_FOUND,
+                        new ResourceNotFoundException("Usuário não encontrado com ID: " + loanRequest.getUserId())));
 
         if (user.getStatus() != UserStatus.ATIVO) {
-            throw new IllegalStateException("Usuário não está ativo e não pode realizar empréstimos.");
+            throw rejection("createLoan", RejectionReason.INACTIVE_USER,
+                    new BusinessRuleException(BusinessError.INACTIVE_USER));
         }
-        if (book.getStatus() != BookStatus.DISPONIVEL || book.getAvailableQuantity() <= 0) {
-            throw new IllegalStateException("Livro não está disponível para empréstimo.");
+        if (!userRepository.acquireLoanSlots(user.getId(), 1, MAX_ACTIVE_LOANS)) {
+            throw rejection("createLoan", RejectionReason.LIMIT_EXCEEDED,
+                    new BusinessRuleException(BusinessError.LIMIT_EXCEEDED));
         }
-        int activeLoansCount = loanRepository.countByUserAndStatus(user, LoanStatus.ATIVO);
-        if (activeLoansCount >= 3) {
-            throw new IllegalStateException("Usuário já possui 3 empréstimos ativos. Limite excedido.");
+
+        if (bookRepository.reserveCopy(loanRequest.getBookId()) == 0) {
+            if (!bookRepository.existsById(loanRequest.getBookId())) {
+                throw rejection("createLoan", RejectionReason.BOOK_NOT_FOUND,
+                        new ResourceNotFoundException("Livro não encontrado com ID: " + loanRequest.getBookId()));
+            }
+            throw rejection("createLoan", RejectionReason.BOOK_UNAVAILABLE,
+                    new BusinessRuleException(BusinessError.BOOK_UNAVAILABLE));
         }
+        entityCacheEvictor.evictUsers(List.of(user.getId()));
+        entityCacheEvictor.evictBooks(List.of(loanRequest.getBookId()));
+        Book book = bookRepository.getReferenceById(loanRequest.getBookId());
+
+        Loan savedLoan = loanRepository.save(newLoan(user, book));
+        publish(LoanChangedEvent.Type.CREATED, savedLoan.getId(), loanRequest.getBookId(), user.getId());
+
+        return convertToResponseDTO(savedLoan);
+    }
+
+    @Transactional
+    public List<LoanBatchItemResultDTO> createLoans(LoanBatchRequestDTO batchRequest) {
+        Users user = userRepository.findById(batchRequest.getUserId())
+                .orElseThrow(() -> rejection("createLoans", RejectionReason.USER_NOT_FOUND,
+                        new ResourceNotFoundException("Usuário não encontrado com ID: " + batchRequest.getUserId())));
 
-        book.setAvailableQuantity(book.getAvailableQuantity() - 1);
-        if (book.getAvailableQuantity() == 0) {
-            book.setStatus(BookStatus.INDISPONIVEL);
+        if (user.getStatus() != UserStatus.ATIVO) {
+            throw rejection("createLoans", RejectionReason.INACTIVE_USER,
+                    new BusinessRuleException(BusinessError.INACTIVE_USER));
         }
-        bookRepository.save(book);
+        int freeSlots = MAX_ACTIVE_LOANS - user.getActiveLoanCount();
 
-        Loan newLoan = new Loan();
-        newLoan.setUser(user);
-        newLoan.setBook(book);
-        newLoan.setLoanDate(LocalDate.now());
-        newLoan.setExpectedReturnDate(LocalDate.now().plusDays(LOAN_PERIOD_DAYS));
-        newLoan.setStatus(LoanStatus.ATIVO);
+        List<Long> bookIds = batchRequest.getBookIds();
+        LoanBatchItemResultDTO[] results = new LoanBatchItemResultDTO[bookIds.size()];
+        List<Loan> newLoans = new ArrayList<>();
+        List<Integer> loanPositions = new ArrayList<>();
 
-        Loan savedLoan = loanRepository.save(newLoan);
+        // Reserva só o que cabe no limite; se alguma cópia não puder ser reservada, a próxima rodada tenta os livros seguintes
+        int next = 0;
+        while (newLoans.size() < freeSlots && next < bookIds.size()) {
+            List<Long> chunk = bookIds.subList(next, Math.min(bookIds.size(), next + freeSlots - newLoans.size()));
+            int[] reserved = bookRepository.reserveCopies(chunk);
 
-        return convertToResponseDTO(savedLoan);
+            List<Long> rejected = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (reserved[i] > 0) {
+                    newLoans.add(newLoan(user, bookRepository.getReferenceById(chunk.get(i))));
+                    loanPositions.add(next + i);
+                } else if (reserved[i] == 0) {
+                    rejected.add(chunk.get(i));
+                } else {
+                    // SUCCESS_NO_INFO: não há como saber se a cópia foi tirada; o rollback devolve as já reservadas.
+                    // Um UPDATE que falha no batch não chega aqui: o JdbcTemplate lança DataAccessException.
+                    throw new IllegalStateException("Não foi possível confirmar a reserva do livro com ID: " + chunk.get(i));
+                }
+            }
+            Set<Long> existing = rejected.isEmpty() ? Set.of() : bookRepository.findExistingIds(rejected);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (reserved[i] == 0) {
+                    boolean exists = existing.contains(chunk.get(i));
+                    countRejection("createLoans", exists ? RejectionReason.BOOK_UNAVAILABLE : RejectionReason.BOOK_NOT_FOUND);
+                    results[next + i] = LoanBatchItemResultDTO.failure(chunk.get(i), exists
+                            ? BusinessError.BOOK_UNAVAILABLE.getMessage()
+                            : "Livro não encontrado com ID: " + chunk.get(i));
+                }
+            }
+            next += chunk.size();
+        }
+        for (int i = next; i < bookIds.size(); i++) {
+            countRejection("createLoans", RejectionReason.LIMIT_EXCEEDED);
+            results[i] = LoanBatchItemResultDTO.failure(bookIds.get(i), BusinessError.LIMIT_EXCEEDED.getMessage());
+        }
+
+        if (!newLoans.isEmpty() && !userRepository.acquireLoanSlots(user.getId(), newLoans.size(), MAX_ACTIVE_LOANS)) {
+            throw rejection("createLoans", RejectionReason.LIMIT_EXCEEDED,
+                    new BusinessRuleException(BusinessError.LIMIT_EXCEEDED));
+        }
+        loanRepository.insertAll(newLoans);
+        newLoans.forEach(loan -> publish(LoanChangedEvent.Type.CREATED, loan.getId(), loan.getBook().getId(), user.getId()));
+        if (!newLoans.isEmpty()) {
+            entityCacheEvictor.evictUsers(List.of(user.getId()));
+            entityCacheEvictor.evictBooks(newLoans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toSet()));
+        }
+
+        Map<Long, LoanResponseDTO> created = newLoans.isEmpty() ? Map.of() : loanRepository
+                .findResponsesByIds(newLoans.stream().map(Loan::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(LoanResponseDTO::getId, dto -> dto));
+        for (int i = 0; i < newLoans.size(); i++) {
+            int position = loanPositions.get(i);
+            results[position] = LoanBatchItemResultDTO.success(bookIds.get(position), created.get(newLoans.get(i).getId()));
+        }
+        return List.of(results);
     }
 
     @Transactional
     public LoanResponseDTO returnLoan(Long loanId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new ResourceNotFoundException("Empréstimo não encontrado com ID: " + loanId));
+        Long bookId = loan.getBook().getId();
+        Long userId = loan.getUser().getId();
+
+        if (loan.getStatus() == LoanStatus.DEVOLVIDO || loanRepository.markReturned(loanId, LocalDate.now()) == 0) {
+            throw new BusinessRuleException(BusinessError.LOAN_ALREADY_RETURNED);
+        }
+        bookRepository.releaseCopy(bookId);
+        userRepository.releaseLoanSlots(Map.of(userId, 1));
+        publish(LoanChangedEvent.Type.RETURNED, loanId, bookId, userId);
+        entityCacheEvictor.evictBooks(List.of(bookId));
+        entityCacheEvictor.evictUsers(List.of(userId));
+
+        return loanRepository.findResponseById(loanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Empréstimo não encontrado com ID: " + loanId));
+    }
 
-        if (loan.getStatus() == LoanStatus.DEVOLVIDO) {
-            throw new IllegalStateException("Este empréstimo já foi devolvido.");
+    @Transactional
+    public List<LoanBatchItemResultDTO> returnLoans(LoanReturnBatchRequestDTO batchRequest) {
+        List<Long> loanIds = batchRequest.getLoanIds() == null ? List.of() : batchRequest.getLoanIds();
+        List<String> isbns = batchRequest.getIsbns() == null ? List.of() : batchRequest.getIsbns();
+
+        // Cada ISBN devolvido fecha o empréstimo em aberto mais antigo daquele livro
+        Map<String, Deque<Long>> openLoansByIsbn = new HashMap<>();
+        if (!isbns.isEmpty()) {
+            for (Object[] row : loanRepository.findOpenLoanIdsByIsbn(new HashSet<>(isbns))) {
+                openLoansByIsbn.computeIfAbsent((String) row[1], isbn -> new ArrayDeque<>()).add((Long) row[0]);
+            }
+        }
+        List<Object> references = new ArrayList<>(loanIds);
+        List<Long> targets = new ArrayList<>(loanIds);
+        Set<Long> requested = new HashSet<>(loanIds);
+        for (String isbn : isbns) {
+            Deque<Long> openLoans = openLoansByIsbn.getOrDefault(isbn, new ArrayDeque<>());
+            Long target = openLoans.poll();
+            while (target != null && requested.contains(target)) {
+                target = openLoans.poll();
+            }
+            if (target != null) {
+                requested.add(target);
+            }
+            references.add(isbn);
+            targets.add(target);
         }
 
-        Book book = loan.getBook();
-        book.setAvailableQuantity(book.getAvailableQuantity() + 1);
-        if (book.getStatus() == BookStatus.INDISPONIVEL) {
-            book.setStatus(BookStatus.DISPONIVEL);
+        Map<Long, Loan> loans = requested.isEmpty() ? Map.of() : loanRepository.findAllByIdForUpdate(requested)
+                .stream()
+                .collect(Collectors.toMap(Loan::getId, loan -> loan));
+
+        LoanBatchItemResultDTO[] results = new LoanBatchItemResultDTO[targets.size()];
+        Set<Long> returning = new LinkedHashSet<>();
+        Map<Long, Integer> copiesByBookId = new HashMap<>();
+        Map<Long, Integer> slotsByUserId = new HashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            Long target = targets.get(i);
+            Loan loan = target == null ? null : loans.get(target);
+            if (target == null) {
+                results[i] = LoanBatchItemResultDTO.failure(references.get(i), "Nenhum empréstimo em aberto para o ISBN: " + references.get(i));
+            } else if (loan == null) {
+                results[i] = LoanBatchItemResultDTO.failure(references.get(i), "Empréstimo não encontrado com ID: " + target);
+            } else if (loan.getStatus() == LoanStatus.DEVOLVIDO || !returning.add(target)) {
+                results[i] = LoanBatchItemResultDTO.failure(references.get(i), BusinessError.LOAN_ALREADY_RETURNED.getMessage());
+            } else {
+                copiesByBookId.merge(loan.getBook().getId(), 1, Integer::sum);
+                slotsByUserId.merge(loan.getUser().getId(), 1, Integer::sum);
+            }
         }
-        bookRepository.save(book);
 
-        loan.setReturnDate(LocalDate.now());
-        loan.setStatus(LoanStatus.DEVOLVIDO);
+        if (!returning.isEmpty()) {
+            loanRepository.markAllReturned(returning, LocalDate.now());
+            bookRepository.releaseCopies(copiesByBookId);
+            userRepository.releaseLoanSlots(slotsByUserId);
+            returning.forEach(id -> publish(LoanChangedEvent.Type.RETURNED, id,
+                    loans.get(id).getBook().getId(), loans.get(id).getUser().getId()));
+            entityCacheEvictor.evictBooks(copiesByBookId.keySet());
+            entityCacheEvictor.evictUsers(slotsByUserId.keySet());
+        }
 
-        Loan savedLoan = loanRepository.save(loan);
+        Map<Long, LoanResponseDTO> returned = returning.isEmpty() ? Map.of() : loanRepository.findResponsesByIds(returning)
+                .stream()
+                .collect(Collectors.toMap(LoanResponseDTO::getId, dto -> dto));
+        for (int i = 0; i < targets.size(); i++) {
+            if (results[i] == null) {
+                results[i] = LoanBatchItemResultDTO.success(references.get(i), returned.get(targets.get(i)));
+            }
+        }
+        return List.of(results);
+    }
 
-        return convertToResponseDTO(savedLoan);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<LoanResponseDTO> findLoansPage(Long afterId, LoanStatus status, LocalDate from, LocalDate to, int size) {
+        List<LoanResponseDTO> content = loanRepository.findResponsePageAfter(afterId == null ? 0L : afterId, status, from, to, Limit.of(size));
+
+        Long nextCursor = content.size() < size ? null : content.get(content.size() - 1).getId();
+        return new CursorPageDTO<>(content, content.size(), nextCursor);
     }
 
     @Transactional(readOnly = true)
-    public List<LoanResponseDTO> findAllLoans() {
-        return loanRepository.findAll()
-                .stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+    public void streamLoans(LoanStatus status, LocalDate from, LocalDate to, Consumer<LoanResponseDTO> sink) {
+        try (Stream<LoanResponseDTO> loans = loanRepository.streamResponses(status, from, to)) {
+            loans.forEach(sink);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -101,13 +282,35 @@ public class LoanService {
         if (!userRepository.existsById(userId)) {
             throw new ResourceNotFoundException("Usuário não encontrado com ID: " + userId);
         }
-        return loanRepository.findByUserId(userId)
-                .stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return loanRepository.findResponsesByUserId(userId);
+    }
+
+    private void publish(LoanChangedEvent.Type type, Long loanId, Long bookId, Long userId) {
+        eventPublisher.publishEvent(new LoanChangedEvent(type, loanId, bookId, userId));
+    }
+
+    private Loan newLoan(Users user, Book book) {
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setBook(book);
+        loan.setLoanDate(LocalDate.now());
+        loan.setExpectedReturnDate(LocalDate.now().plusDays(LOAN_PERIOD_DAYS));
+        loan.setStatus(LoanStatus.ATIVO);
+        return loan;
+    }
+
+    // Empréstimos recusados por motivo, separados entre o empréstimo avulso (createLoan) e o lote (createLoans)
+    private void countRejection(String operation, RejectionReason reason) {
+        meterRegistry.counter(REJECTED_METRIC, "operation", operation, "reason", reason.name().toLowerCase()).increment();
+    }
+
+    private <E extends RuntimeException> E rejection(String operation, RejectionReason reason, E exception) {
+        countRejection(operation, reason);
+        return exception;
     }
 
-    private LoanResponseDTO convertToResponseDTO(Loan loan) {
+    // Visível no pacote para o LoanServiceBenchmark
+    LoanResponseDTO convertToResponseDTO(Loan loan) {
         LoanResponseDTO dto = new LoanResponseDTO();
         dto.setId(loan.getId());
         dto.setBookId(loan.getBook().getId());
@@ -0,0 +1,72 @@
+package com.biblioteca.service;
+
+import com.biblioteca.repository.LoanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Service
+public class OverdueLoanService {
+    static final String MARKED_METRIC = "biblioteca.loans.overdue.marked";
+    static final String RUN_METRIC = "biblioteca.loans.overdue.run";
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${biblioteca.overdue.chunk-size:500}")
+    private int chunkSize = 500;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${biblioteca.overdue.cron:0 5 0 * * *}")
+    public void markOverdueLoansJob() {
+        markOverdueLoans(LocalDate.now());
+    }
+
+    // Cada lote roda na própria transação, então os locks duram só um UPDATE de até chunkSize linhas.
+    // Se a execução for interrompida, a próxima continua de onde parou: o que já virou ATRASADO sai do filtro.
+    public int markOverdueLoans(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Marcação de empréstimos atrasados já está em execução, ignorando esta chamada");
+            return 0;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int total = 0;
+        try {
+            while (true) {
+                // -1 indica que não há mais empréstimos vencidos; 0 só significa que o lote foi devolvido no meio do caminho
+                Integer marked = transactionTemplate.execute(status -> {
+                    List<Long> ids = loanRepository.findOverdueIds(today, Limit.of(chunkSize));
+                    return ids.isEmpty() ? -1 : loanRepository.markOverdue(ids);
+                });
+                if (marked == null || marked < 0) {
+                    break;
+                }
+                total += marked;
+                meterRegistry.counter(MARKED_METRIC).increment(marked);
+            }
+            log.info("{} empréstimo(s) marcado(s) como ATRASADO", total);
+            return total;
+        } finally {
+            sample.stop(meterRegistry.timer(RUN_METRIC));
+            running.set(false);
+        }
+    }
+}
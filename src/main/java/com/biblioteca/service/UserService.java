@@ -1,35 +1,95 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.CacheConfig;
+import com.biblioteca.config.EntityCacheEvictor;
+import com.biblioteca.dto.UserSummaryDTO;
 import com.biblioteca.entity.Users;
+import com.biblioteca.repository.LoanRepository;
 import com.biblioteca.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.biblioteca.exception.ResourceNotFoundException;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+@Slf4j
 @Service
+@Timed("biblioteca.service")
 public class UserService {
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private LoanRepository loanRepository;
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    private static final String DEFAULT_SORT_PROPERTY = "name";
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "name", "email", "registerDate");
 
     @Transactional
     public Users createUser(Users user) {
         return userRepository.save(user);
     }
 
+    // Mesma ordenação estável do catálogo de livros; as contagens da página saem de uma única consulta agrupada
     @Transactional(readOnly = true)
-    public List<Users> findAllUsers() {
-        return userRepository.findAll();
+    public Page<UserSummaryDTO> findUsers(Pageable pageable) {
+        Sort sort = pageable.getSortOr(Sort.by(DEFAULT_SORT_PROPERTY));
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalStateException("Não é possível ordenar os usuários por: " + order.getProperty());
+            }
+        }
+        if (sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
+        }
+        Page<Users> users = userRepository.findAll(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
+        return new PageImpl<>(summarize(users.getContent()), users.getPageable(), users.getTotalElements());
+    }
+
+    // Recebe os usuários já carregados (ou vindos do cache) e acrescenta as contagens de empréstimos
+    @Transactional(readOnly = true)
+    public List<UserSummaryDTO> summarize(List<Users> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Object[]> counts = new HashMap<>();
+        for (Object[] row : loanRepository.countLoansByUsers(users.stream().map(Users::getId).toList())) {
+            counts.put((Long) row[0], row);
+        }
+        return users.stream().map(user -> {
+            Object[] row = counts.get(user.getId());
+            return new UserSummaryDTO(user.getId(), user.getName(), user.getEmail(), user.getCpf(),
+                    user.getRegisterDate(), user.getStatus(), user.getVersion(),
+                    row == null ? 0 : ((Number) row[2]).longValue(),
+                    row == null ? 0 : ((Number) row[3]).longValue(),
+                    row == null ? 0 : ((Number) row[1]).longValue());
+        }).toList();
     }
 
+    @Cacheable(cacheNames = CacheConfig.USERS, unless = "#result == null")
     @Transactional(readOnly = true)
     public Optional<Users> findUserById(Long id) {
         return userRepository.findById(id);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id")
     @Transactional
     public Users updateUser(Long id, Users user) {
         Users existingUser = findUserById(id).orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -40,6 +100,7 @@ public class UserService {
         return userRepository.save(existingUser);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.USERS)
     @Transactional
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
@@ -48,4 +109,26 @@ public class UserService {
         userRepository.deleteById(id);
     }
 
+    // Confere Users.activeLoanCount contra os empréstimos não devolvidos da tabela loan e corrige as divergências
+    @Transactional
+    public int reconcileActiveLoanCounts() {
+        List<long[]> mismatches = userRepository.findActiveLoanCountMismatches();
+        for (long[] mismatch : mismatches) {
+            log.warn("Contador de empréstimos ativos divergente para o usuário {}: contador={}, empréstimos não devolvidos={}",
+                    mismatch[0], mismatch[1], mismatch[2]);
+        }
+        List<Long> userIds = mismatches.stream().map(mismatch -> mismatch[0]).toList();
+        entityCacheEvictor.evictUsers(userIds);
+        return userRepository.recountActiveLoans(userIds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileActiveLoanCountsOnStartup() {
+        int fixed = reconcileActiveLoanCounts();
+        if (fixed > 0) {
+            log.info("{} contadores de empréstimos ativos recalculados na inicialização", fixed);
+        }
+    }
+
 }
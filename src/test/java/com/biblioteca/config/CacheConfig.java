@@ -0,0 +1,215 @@
+package com.biblioteca.config;
+
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.index.AutocompleteIndex;
+import com.biblioteca.index.AvailabilityIndex;
+import com.biblioteca.index.BookSearchIndex;
+import com.biblioteca.index.IsbnIndex;
+import com.biblioteca.repository.BookRepository;
+import com.biblioteca.service.BookService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CacheConfig.class, EntityCacheEvictor.class, BookService.class})
+// Sem a transação do teste, para que os evicts sejam aplicados nos commits como em produção
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheConfigTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private IsbnIndex isbnIndex;
+
+    @MockitoBean
+    private BookSearchIndex bookSearchIndex;
+
+    @MockitoBean
+    private AutocompleteIndex autocompleteIndex;
+
+    @MockitoBean
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private List<CacheMeterBinderProvider<?>> cacheMeterBinderProviders;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        booksCache().clear();
+    }
+
+    @Test
+    @DisplayName("Deve buscar o livro no banco apenas na primeira chamada e registrar o acerto no cache")
+    void findBookById_SecondCall_ShouldBeServedFromCache() {
+        Book book = persistBook();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        assertTrue(bookService.findBookById(book.getId()).isPresent());
+        statistics.clear();
+        CacheStats before = stats();
+        assertEquals("O Senhor dos Anéis", bookService.findBookById(book.getId()).orElseThrow().getTitle());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, stats().minus(before).hitCount());
+    }
+
+    @Test
+    @DisplayName("Deve remover o livro do cache ao atualizá-lo")
+    void updateBook_ShouldEvictCachedBook() {
+        Book book = persistBook();
+        bookService.findBookById(book.getId());
+
+        Book details = new Book();
+        details.setTitle("O Hobbit");
+        details.setAuthor("J.R.R. Tolkien");
+        details.setAvailableQuantity(0);
+        bookService.updateBook(book.getId(), details);
+
+        Book reloaded = bookService.findBookById(book.getId()).orElseThrow();
+        assertEquals("O Hobbit", reloaded.getTitle());
+        assertEquals(BookStatus.INDISPONIVEL, reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Não deve guardar no cache um livro que não existe")
+    void findBookById_WhenNotFound_ShouldNotCache() {
+        assertTrue(bookService.findBookById(999L).isEmpty());
+
+        assertNull(booksCache().get(999L));
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o evict de quantidades só depois do commit da transação")
+    void evictBooks_InsideTransaction_ShouldEvictAfterCommit() {
+        Book book = persistBook();
+        bookService.findBookById(book.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            entityCacheEvictor.evictBooks(List.of(book.getId()));
+            assertNotNull(booksCache().get(book.getId()));
+        });
+
+        assertNull(booksCache().get(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Não deve recolocar no cache o valor lido antes de um evict que aconteceu durante a leitura")
+    void put_AfterConcurrentEvict_ShouldNotCacheStaleValue() {
+        Book book = persistBook();
+        Cache cache = booksCache();
+
+        // A leitura não acha o livro no cache e carrega a linha antiga...
+        assertNull(cache.get(book.getId()));
+        Book stale = bookRepository.findById(book.getId()).orElseThrow();
+        // ...a escrita faz o commit e o evict...
+        transactionTemplate.executeWithoutResult(status -> {
+            bookRepository.reserveCopy(book.getId());
+            entityCacheEvictor.evictBooks(List.of(book.getId()));
+        });
+        // ...e só então a leitura grava no cache
+        cache.put(book.getId(), stale);
+
+        assertNull(cache.get(book.getId()));
+        assertEquals(1, bookService.findBookById(book.getId()).orElseThrow().getAvailableQuantity());
+        assertEquals(1, ((Book) cache.get(book.getId()).get()).getAvailableQuantity());
+    }
+
+    @Test
+    @DisplayName("Deve guardar no cache o valor lido depois do evict")
+    void put_AfterEvictThenMiss_ShouldCacheValue() {
+        Book book = persistBook();
+        entityCacheEvictor.evictBooks(List.of(book.getId()));
+
+        bookService.findBookById(book.getId());
+
+        assertNotNull(booksCache().get(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Deve registrar as métricas cache.gets dos caches de livros e usuários")
+    void cacheMetrics_ShouldBindBooksAndUsersCaches() {
+        // Mesmos providers que o actuator usa: o do Caffeine, que não reconhece o EvictionGuardedCache, e os da aplicação
+        List<CacheMeterBinderProvider<?>> providers = new ArrayList<>(List.of(new CaffeineCacheMeterBinderProvider()));
+        providers.addAll(cacheMeterBinderProviders);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CacheMetricsRegistrar registrar = new CacheMetricsRegistrar(meterRegistry, providers);
+
+        assertTrue(registrar.bindCacheToRegistry(cacheManager.getCache(CacheConfig.BOOKS)));
+        assertTrue(registrar.bindCacheToRegistry(cacheManager.getCache(CacheConfig.USERS)));
+        Book book = persistBook();
+        bookService.findBookById(book.getId());
+        bookService.findBookById(book.getId());
+
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", CacheConfig.BOOKS, "result", "hit")
+                .functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", CacheConfig.USERS).functionCounter());
+    }
+
+    private Book persistBook() {
+        Book book = new Book();
+        book.setTitle("O Senhor dos Anéis");
+        book.setAuthor("J.R.R. Tolkien");
+        book.setIsbn("978-0618640157");
+        book.setTotalQuantity(2);
+        book.setAvailableQuantity(2);
+        book.setStatus(BookStatus.DISPONIVEL);
+        return bookRepository.save(book);
+    }
+
+    private Cache booksCache() {
+        return cacheManager.getCache(CacheConfig.BOOKS);
+    }
+
+    private CacheStats stats() {
+        EvictionGuardedCache guarded = (EvictionGuardedCache) ((TransactionAwareCacheDecorator) booksCache()).getTargetCache();
+        CaffeineCache cache = (CaffeineCache) guarded.getTargetCache();
+        return cache.getNativeCache().stats();
+    }
+}
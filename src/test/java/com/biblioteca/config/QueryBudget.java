@@ -0,0 +1,29 @@
+package com.biblioteca.config;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Orçamento de instruções SQL para os testes: falha se a ação executar mais que maxStatements idas ao banco e lista
+// as instruções, o que costuma bastar para achar o N+1. Só conta o que roda na thread do teste (o MockMvc roda).
+//
+//     QueryBudget.atMost(2, () -> mockMvc.perform(get("/api/loans/user/{userId}", userId)));
+public final class QueryBudget {
+
+    @FunctionalInterface
+    public interface Action<T> {
+        T run() throws Exception;
+    }
+
+    private QueryBudget() {
+    }
+
+    public static <T> T atMost(int maxStatements, Action<T> action) throws Exception {
+        try (SqlStatementListener.Scope scope = SqlStatementListener.open(true)) {
+            T result = action.run();
+            if (scope.statements() > maxStatements) {
+                fail("Esperado no máximo " + maxStatements + " instruções SQL, foram executadas " + scope.statements()
+                        + ":\n  " + String.join("\n  ", scope.queries()));
+            }
+            return result;
+        }
+    }
+}
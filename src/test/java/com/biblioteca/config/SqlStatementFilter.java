@@ -0,0 +1,143 @@
+package com.biblioteca.config;
+
+import com.biblioteca.entity.*;
+import com.biblioteca.repository.BookRepository;
+import com.biblioteca.repository.LoanRepository;
+import com.biblioteca.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class SqlStatementFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private Users user;
+    private List<Book> books;
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setName("Maria da Silva");
+        user.setEmail("maria.silva@example.com");
+        user.setCpf("12345678909");
+        user.setRegisterDate(LocalDate.now());
+        user.setStatus(UserStatus.ATIVO);
+        user = userRepository.save(user);
+
+        books = bookRepository.saveAll(List.of(book("978-0618640157"), book("978-8508127597"), book("978-8535914849")));
+        for (Book book : books.subList(0, 2)) {
+            Loan loan = new Loan();
+            loan.setUser(user);
+            loan.setBook(book);
+            loan.setLoanDate(LocalDate.now().minusDays(30));
+            loan.setExpectedReturnDate(LocalDate.now().minusDays(16));
+            loan.setReturnDate(LocalDate.now().minusDays(20));
+            loan.setStatus(LoanStatus.DEVOLVIDO);
+            loanRepository.save(loan);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private static Book book(String isbn) {
+        Book book = new Book();
+        book.setTitle("Livro " + isbn);
+        book.setAuthor("Autor");
+        book.setIsbn(isbn);
+        book.setTotalQuantity(2);
+        book.setAvailableQuantity(2);
+        book.setStatus(BookStatus.DISPONIVEL);
+        return book;
+    }
+
+    @Test
+    @DisplayName("Deve listar o histórico do usuário com uma consulta fixa, sem uma por empréstimo")
+    void getLoansByUser_ShouldStayWithinQueryBudget() throws Exception {
+        QueryBudget.atMost(2, () -> mockMvc.perform(get("/api/loans/user/{userId}", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2)));
+    }
+
+    @Test
+    @DisplayName("Deve realizar o empréstimo dentro do orçamento de instruções SQL")
+    void createLoan_ShouldStayWithinQueryBudget() throws Exception {
+        String request = "{\"userId\": " + user.getId() + ", \"bookId\": " + books.get(2).getId() + "}";
+
+        QueryBudget.atMost(6, () -> mockMvc.perform(post("/api/loans")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(request))
+                .andExpect(status().isCreated()));
+    }
+
+    @Test
+    @DisplayName("Deve falhar listando as instruções quando a requisição passa do orçamento")
+    void atMost_WhenBudgetIsExceeded_ShouldFail() {
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () ->
+                QueryBudget.atMost(1, () -> mockMvc.perform(get("/api/loans/user/{userId}", user.getId()))));
+
+        assertTrue(error.getMessage().startsWith("Esperado no máximo 1 instruções SQL, foram executadas 2"));
+        assertTrue(error.getMessage().toLowerCase().contains("from loan"));
+    }
+
+    @Test
+    @DisplayName("Deve publicar as instruções SQL por rota do controller")
+    void doFilter_ShouldRecordStatementsPerEndpoint() throws Exception {
+        mockMvc.perform(get("/api/loans/user/{userId}", user.getId())).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get(SqlStatementFilter.STATEMENTS_METRIC)
+                .tags("method", "GET", "uri", "/api/loans/user/{userId}")
+                .summary();
+        assertTrue(statements.count() >= 1);
+        assertEquals(2, statements.max());
+        assertNotNull(meterRegistry.get(SqlStatementFilter.TIME_METRIC)
+                .tags("method", "GET", "uri", "/api/loans/user/{userId}")
+                .timer());
+    }
+
+    @Test
+    @DisplayName("Deve ocultar os literais de texto do SQL registrado")
+    void redact_ShouldHideStringLiterals() {
+        String redacted = SqlStatementListener.redact(List.of(
+                new QueryInfo("select * from users where cpf = '123''456' and id = ?")));
+
+        assertEquals("select * from users where cpf = '?' and id = ?", redacted);
+    }
+}
@@ -1,18 +1,33 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.BookImportResultDTO;
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.dto.BookSummaryDTO;
 import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
 import com.biblioteca.exception.ResourceNotFoundException;
+import com.biblioteca.index.AvailabilityIndex;
+import com.biblioteca.service.AvailabilityFeedService;
+import com.biblioteca.service.BookImportService;
 import com.biblioteca.service.BookService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Collections;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -20,7 +35,10 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookController.class)
@@ -35,6 +53,12 @@ class BookControllerTest {
     @MockitoBean
     private BookService bookService;
 
+    @MockitoBean
+    private BookImportService bookImportService;
+
+    @MockitoBean
+    private AvailabilityFeedService availabilityFeedService;
+
     @Test
     @DisplayName("Deve retornar status 200 e um livro ao buscar por ID existente")
     void getBookById_WithExistingId_ShouldReturnOk() throws Exception {
@@ -49,13 +73,101 @@ class BookControllerTest {
     }
 
     @Test
-    @DisplayName("Deve retornar status 200 e uma lista vazia quando não há livros")
-    void getAllBooks_ShouldReturnOkAndEmptyList() throws Exception {
-        given(bookService.findAllBooks()).willReturn(Collections.emptyList());
+    @DisplayName("Deve retornar a versão do livro na ETag e 304 quando o cliente já tem essa versão")
+    void getBookById_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        Book mockBook = new Book();
+        mockBook.setId(1L);
+        mockBook.setVersion(3L);
+        given(bookService.findBookById(1L)).willReturn(Optional.of(mockBook));
+
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        mockMvc.perform(get("/api/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e o livro ao buscar por um ISBN cadastrado")
+    void getBookByIsbn_WithExistingIsbn_ShouldReturnOk() throws Exception {
+        Book mockBook = new Book();
+        mockBook.setId(1L);
+        mockBook.setIsbn("978-0618640157");
+        given(bookService.findBookIdByIsbn("978-0618640157")).willReturn(Optional.of(1L));
+        given(bookService.findBookById(1L)).willReturn(Optional.of(mockBook));
+
+        mockMvc.perform(get("/api/books/isbn/978-0618640157"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isbn").value("978-0618640157"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 404 sem buscar o livro quando o ISBN não está no catálogo")
+    void getBookByIsbn_WithUnknownIsbn_ShouldReturnNotFound() throws Exception {
+        given(bookService.findBookIdByIsbn("978-0000000000")).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/books/isbn/978-0000000000"))
+                .andExpect(status().isNotFound());
+
+        verify(bookService, never()).findBookById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e uma página vazia quando não há livros")
+    void getAllBooks_ShouldReturnOkAndEmptyPage() throws Exception {
+        given(bookService.findBooks(null, null, null, null, PageRequest.of(0, 20))).willReturn(Page.empty());
 
         mockMvc.perform(get("/api/books"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.page.totalElements").value(0));
+    }
+
+    @Test
+    @DisplayName("A ETag do catálogo deve mudar quando a versão de um livro da página muda")
+    void getAllBooks_ShouldAnswerIfNoneMatchByPageVersions() throws Exception {
+        BookSummaryDTO mockBook = new BookSummaryDTO();
+        mockBook.setId(1L);
+        mockBook.setVersion(1L);
+        given(bookService.findBooks(null, null, null, null, PageRequest.of(0, 20)))
+                .willAnswer(invocation -> new PageImpl<>(List.of(mockBook), PageRequest.of(0, 20), 1));
+
+        String etag = mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockBook.setVersion(2L);
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].version").value(2));
+    }
+
+    @Test
+    @DisplayName("Deve repassar os filtros, a página e a ordenação do catálogo")
+    void getAllBooks_WithFilters_ShouldPassThemToService() throws Exception {
+        BookSummaryDTO mockBook = new BookSummaryDTO();
+        mockBook.setId(1L);
+        mockBook.setTitle("Dom Casmurro");
+        PageRequest pageable = PageRequest.of(1, 5, Sort.by(Sort.Direction.DESC, "publicationYear"));
+        given(bookService.findBooks(BookStatus.DISPONIVEL, "Machado de Assis", 1880, 1900, pageable))
+                .willReturn(new PageImpl<>(List.of(mockBook), pageable, 6));
+
+        mockMvc.perform(get("/api/books")
+                        .param("status", "DISPONIVEL")
+                        .param("author", "Machado de Assis")
+                        .param("yearFrom", "1880")
+                        .param("yearTo", "1900")
+                        .param("page", "1")
+                        .param("size", "5")
+                        .param("sort", "publicationYear,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Dom Casmurro"))
+                .andExpect(jsonPath("$.page.totalPages").value(2));
     }
 
     @Test
@@ -118,6 +230,121 @@ class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Deve importar livros de um CSV e retornar o resumo da importação")
+    void importBooks_WithCsv_ShouldReturnImportResult() throws Exception {
+        BookImportResultDTO result = new BookImportResultDTO();
+        result.setImported(2);
+        given(bookImportService.importCsv(any(InputStream.class))).willReturn(result);
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("text/csv")
+                        .content("title,author,isbn,totalQuantity,availableQuantity\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+
+        verify(bookImportService, never()).importJson(any());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 400 quando o arquivo de importação é inválido")
+    void importBooks_WithInvalidJson_ShouldReturnBadRequest() throws Exception {
+        given(bookImportService.importJson(any(InputStream.class)))
+                .willThrow(new IllegalStateException("O arquivo JSON deve conter uma lista de livros."));
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e a página de livros encontrados na busca")
+    void searchBooks_ShouldReturnPage() throws Exception {
+        Book mockBook = new Book();
+        mockBook.setId(1L);
+        mockBook.setTitle("Memórias Póstumas de Brás Cubas");
+        given(bookService.searchBooks("memorias", PageRequest.of(1, 5)))
+                .willReturn(new PageImpl<>(List.of(mockBook), PageRequest.of(1, 5), 6));
+
+        mockMvc.perform(get("/api/books/search").param("q", "memorias").param("page", "1").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Memórias Póstumas de Brás Cubas"))
+                .andExpect(jsonPath("$.page.totalElements").value(6))
+                .andExpect(jsonPath("$.page.number").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e as sugestões do autocompletar")
+    void autocomplete_ShouldReturnSuggestions() throws Exception {
+        given(bookService.suggestBooks("mach", 10)).willReturn(List.of(
+                new BookSuggestionDTO("Machado de Assis", BookSuggestionDTO.Field.AUTHOR, 2L, 30)));
+
+        mockMvc.perform(get("/api/books/autocomplete").param("q", "mach"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Machado de Assis"))
+                .andExpect(jsonPath("$[0].field").value("AUTHOR"))
+                .andExpect(jsonPath("$[0].loanCount").value(30));
+    }
+
+    @Test
+    @DisplayName("Deve retornar o bitmap de disponibilidade com a versão e o tipo da resposta")
+    void getAvailability_ShouldReturnBitmapWithVersion() throws Exception {
+        byte[] body = {1, 2, 3};
+        given(bookService.getAvailability(41L))
+                .willReturn(new AvailabilityIndex.Availability(AvailabilityIndex.Kind.DELTA, 42L, body));
+
+        mockMvc.perform(get("/api/books/availability").param("since", "41"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Availability-Version", "42"))
+                .andExpect(header().string("X-Availability-Kind", "delta"))
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(content().bytes(body));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 304 quando a disponibilidade não mudou desde a versão enviada")
+    void getAvailability_WithCurrentVersion_ShouldReturnNotModified() throws Exception {
+        given(bookService.getAvailability(42L))
+                .willReturn(new AvailabilityIndex.Availability(AvailabilityIndex.Kind.NOT_MODIFIED, 42L, new byte[0]));
+
+        mockMvc.perform(get("/api/books/availability").param("since", "42"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("X-Availability-Version", "42"));
+    }
+
+    @Test
+    @DisplayName("Deve abrir o feed SSE de disponibilidade a partir do Last-Event-ID enviado")
+    void streamAvailability_ShouldSubscribeFromLastEventId() throws Exception {
+        given(availabilityFeedService.subscribe(42L)).willReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/books/availability/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "42"))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        verify(availabilityFeedService).subscribe(42L);
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 409 quando o livro foi alterado por outra operação durante a atualização")
+    void updateBook_WhenVersionChanged_ShouldReturnConflict() throws Exception {
+        Book bookDetails = new Book();
+        bookDetails.setTitle("O Hobbit");
+        bookDetails.setAuthor("J.R.R. Tolkien");
+        bookDetails.setIsbn("978-0261102354");
+        bookDetails.setTotalQuantity(2);
+        bookDetails.setAvailableQuantity(2);
+        given(bookService.updateBook(eq(1L), any(Book.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L));
+
+        mockMvc.perform(put("/api/books/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDetails)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     @DisplayName("Deve deletar um livro existente e retornar status 204")
     void deleteBook_WithExistingId_ShouldReturnNoContent() throws Exception {
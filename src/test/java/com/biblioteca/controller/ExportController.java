@@ -0,0 +1,69 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.ExportFormat;
+import com.biblioteca.entity.LoanStatus;
+import com.biblioteca.service.ExportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExportController.class)
+class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ExportService exportService;
+
+    @Test
+    @DisplayName("Deve exportar os empréstimos em NDJSON por padrão repassando os filtros")
+    void exportLoans_ShouldDefaultToNdjsonAndPassFilters() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(4);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportLoans(eq(LoanStatus.ATRASADO), eq(LocalDate.of(2025, 1, 1)), isNull(),
+                eq(ExportFormat.NDJSON), any());
+
+        mockMvc.perform(get("/api/export/loans").param("status", "ATRASADO").param("from", "2025-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"loans.ndjson\""))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar os livros em CSV quando format=CSV")
+    void exportBooks_WithCsvFormat_ShouldReturnCsv() throws Exception {
+        mockMvc.perform(get("/api/export/books").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.csv\""));
+
+        verify(exportService).exportBooks(eq(ExportFormat.CSV), any());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 400 para um formato de exportação desconhecido")
+    void exportUsers_WithUnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/export/users").param("format", "XML"))
+                .andExpect(status().isBadRequest());
+    }
+}
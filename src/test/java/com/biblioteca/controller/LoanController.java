@@ -1,9 +1,15 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.CursorPageDTO;
+import com.biblioteca.dto.LoanBatchItemResultDTO;
+import com.biblioteca.dto.LoanBatchRequestDTO;
+import com.biblioteca.dto.LoanReturnBatchRequestDTO;
 import com.biblioteca.dto.LoanRequestDTO;
 import com.biblioteca.dto.LoanResponseDTO;
 import com.biblioteca.entity.*;
 import com.biblioteca.entity.Loan;
+import com.biblioteca.exception.BusinessError;
+import com.biblioteca.exception.BusinessRuleException;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,13 +21,19 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -60,13 +72,124 @@ class LoanControllerTest {
     }
 
     @Test
-    @DisplayName("Deve retornar status 200 e uma lista vazia quando não há empréstimos")
-    void getAllLoans_ShouldReturnOkAndEmptyList() throws Exception {
-        given(loanService.findAllLoans()).willReturn(Collections.emptyList());
+    @DisplayName("Deve realizar empréstimos em lote e retornar o resultado de cada item")
+    void createLoans_WithValidData_ShouldReturnResultPerItem() throws Exception {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L, 2L));
+
+        LoanResponseDTO responseDTO = new LoanResponseDTO();
+        responseDTO.setId(10L);
+        responseDTO.setStatus(LoanStatus.ATIVO);
+
+        given(loanService.createLoans(any(LoanBatchRequestDTO.class))).willReturn(List.of(
+                LoanBatchItemResultDTO.success(1L, responseDTO),
+                LoanBatchItemResultDTO.failure(2L, "Livro não está disponível para empréstimo.")));
+
+        mockMvc.perform(post("/api/loans/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[0].loan.id").value(10))
+                .andExpect(jsonPath("$[1].reference").value("2"))
+                .andExpect(jsonPath("$[1].success").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 400 ao enviar um lote sem livros")
+    void createLoans_WithoutBooks_ShouldReturnBadRequest() throws Exception {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of());
+
+        mockMvc.perform(post("/api/loans/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve devolver empréstimos em lote por ID e por ISBN")
+    void returnLoans_WithLoanIdsAndIsbns_ShouldReturnResultPerItem() throws Exception {
+        LoanReturnBatchRequestDTO batchRequest = new LoanReturnBatchRequestDTO();
+        batchRequest.setLoanIds(List.of(1L));
+        batchRequest.setIsbns(List.of("978-0618640157"));
+
+        given(loanService.returnLoans(any(LoanReturnBatchRequestDTO.class))).willReturn(List.of(
+                LoanBatchItemResultDTO.success(1L, new LoanResponseDTO()),
+                LoanBatchItemResultDTO.failure("978-0618640157", "Nenhum empréstimo em aberto para o ISBN: 978-0618640157")));
+
+        mockMvc.perform(patch("/api/loans/return")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[1].reference").value("978-0618640157"))
+                .andExpect(jsonPath("$[1].success").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 400 ao enviar um lote de devolução vazio")
+    void returnLoans_WithEmptyBatch_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(patch("/api/loans/return")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e uma página vazia quando não há empréstimos")
+    void getAllLoans_ShouldReturnOkAndEmptyPage() throws Exception {
+        given(loanService.findLoansPage(null, null, null, null, 50))
+                .willReturn(new CursorPageDTO<>(Collections.emptyList(), 0, null));
 
         mockMvc.perform(get("/api/loans"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve repassar cursor, filtros e tamanho da página ao buscar empréstimos")
+    void getAllLoans_WithCursorAndFilters_ShouldReturnNextCursor() throws Exception {
+        LoanResponseDTO responseDTO = new LoanResponseDTO();
+        responseDTO.setId(42L);
+        responseDTO.setStatus(LoanStatus.ATIVO);
+
+        given(loanService.findLoansPage(10L, LoanStatus.ATIVO, LocalDate.of(2025, 1, 1), null, 1))
+                .willReturn(new CursorPageDTO<>(List.of(responseDTO), 1, 42L));
+
+        mockMvc.perform(get("/api/loans")
+                        .param("after", "10")
+                        .param("status", "ATIVO")
+                        .param("from", "2025-01-01")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(42))
+                .andExpect(jsonPath("$.nextCursor").value(42));
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os empréstimos em NDJSON, um por linha")
+    void streamLoans_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        LoanResponseDTO first = new LoanResponseDTO();
+        first.setId(1L);
+        LoanResponseDTO second = new LoanResponseDTO();
+        second.setId(2L);
+
+        doAnswer(invocation -> {
+            Consumer<LoanResponseDTO> sink = invocation.getArgument(3);
+            sink.accept(first);
+            sink.accept(second);
+            return null;
+        }).when(loanService).streamLoans(eq(LoanStatus.DEVOLVIDO), isNull(), isNull(), any());
+
+        mockMvc.perform(get("/api/loans/stream").param("status", "DEVOLVIDO"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second) + "\n"));
     }
 
     @Test
@@ -114,6 +237,25 @@ class LoanControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Deve retornar status 400 com o código da regra quando o livro não está disponível")
+    void createLoan_WithUnavailableBook_ShouldReturnErrorCode() throws Exception {
+        LoanRequestDTO loanRequestDTO = new LoanRequestDTO();
+        loanRequestDTO.setUserId(1L);
+        loanRequestDTO.setBookId(1L);
+
+        given(loanService.createLoan(any(LoanRequestDTO.class)))
+                .willThrow(new BusinessRuleException(BusinessError.BOOK_UNAVAILABLE));
+
+        mockMvc.perform(post("/api/loans")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loanRequestDTO)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value("BOOK_UNAVAILABLE"))
+                .andExpect(jsonPath("$.message").value("Livro não está disponível para empréstimo."));
+    }
+
     @Test
     @DisplayName("Deve retornar status 404 ao tentar retornar um empréstimo que não existe")
     void returnLoanById_WithNonExistingId_ShouldReturnNotFound() throws Exception {
@@ -1,5 +1,6 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.UserSummaryDTO;
 import com.biblioteca.entity.Users;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.service.UserService;
@@ -8,11 +9,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -20,6 +26,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,20 +49,62 @@ class UserControllerTest {
         mockUser.setId(1L);
         mockUser.setName("Carlos Drummond");
         given(userService.findUserById(1L)).willReturn(Optional.of(mockUser));
+        given(userService.summarize(List.of(mockUser))).willReturn(List.of(summary(1L, "Carlos Drummond", 5L, 2, 1, 40)));
 
         mockMvc.perform(get("/api/users/1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.name").value("Carlos Drummond"));
+                .andExpect(jsonPath("$.name").value("Carlos Drummond"))
+                .andExpect(jsonPath("$.activeLoans").value(2))
+                .andExpect(jsonPath("$.overdueLoans").value(1))
+                .andExpect(jsonPath("$.totalLoans").value(40))
+                .andExpect(jsonPath("$.loans").doesNotExist());
     }
 
     @Test
-    @DisplayName("Deve retornar status 200 e uma lista vazia quando não há usuários")
-    void getAllUsers_ShouldReturnOkAndEmptyList() throws Exception {
-        given(userService.findAllUsers()).willReturn(Collections.emptyList());
+    @DisplayName("Deve responder 304 enquanto versão e contagens não mudam, e 200 quando um empréstimo atrasa")
+    void getUserById_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        Users mockUser = new Users();
+        mockUser.setId(1L);
+        given(userService.findUserById(1L)).willReturn(Optional.of(mockUser));
+        given(userService.summarize(List.of(mockUser))).willReturn(
+                List.of(summary(1L, "Carlos Drummond", 5L, 1, 0, 3)),
+                List.of(summary(1L, "Carlos Drummond", 5L, 1, 0, 3)),
+                List.of(summary(1L, "Carlos Drummond", 5L, 1, 1, 3)));
+
+        String etag = mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // O OverdueLoanService não altera a versão do usuário
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.overdueLoans").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar status 200 e uma página vazia quando não há usuários")
+    void getAllUsers_ShouldReturnOkAndEmptyPage() throws Exception {
+        given(userService.findUsers(PageRequest.of(0, 20))).willReturn(Page.empty());
 
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.page.totalElements").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve listar os usuários paginados com as contagens de empréstimos")
+    void getAllUsers_ShouldReturnSummaries() throws Exception {
+        PageRequest pageable = PageRequest.of(1, 2, Sort.by("registerDate"));
+        given(userService.findUsers(pageable)).willReturn(new PageImpl<>(
+                List.of(summary(3L, "Cecília Meireles", 0L, 0, 0, 0), summary(4L, "Clarice Lispector", 2L, 3, 2, 12)), pageable, 5));
+
+        mockMvc.perform(get("/api/users").param("page", "1").param("size", "2").param("sort", "registerDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[1].name").value("Clarice Lispector"))
+                .andExpect(jsonPath("$.content[1].overdueLoans").value(2))
+                .andExpect(jsonPath("$.page.totalElements").value(5));
     }
 
     @Test
@@ -127,4 +176,9 @@ class UserControllerTest {
         mockMvc.perform(delete("/api/users/99"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    private static UserSummaryDTO summary(Long id, String name, Long version, long active, long overdue, long total) {
+        return new UserSummaryDTO(id, name, "usuario" + id + "@example.com", "cpf" + id, null, null,
+                version, active, overdue, total);
+    }
+}
@@ -0,0 +1,118 @@
+package com.biblioteca.index;
+
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import com.biblioteca.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AutocompleteIndexTest {
+
+    @InjectMocks
+    private AutocompleteIndex autocompleteIndex;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(bookRepository.streamAllSearchFields()).thenReturn(Stream.of(
+                new Object[]{1L, "Memórias Póstumas de Brás Cubas", "Machado de Assis"},
+                new Object[]{2L, "Dom Casmurro", "Machado de Assis"},
+                new Object[]{3L, "Macunaíma", "Mário de Andrade"},
+                new Object[]{4L, "O Cortiço", "Aluísio Azevedo"}));
+        when(loanRepository.countLoansByBook()).thenReturn(List.of(
+                new Object[]{1L, 5L},
+                new Object[]{2L, 9L},
+                new Object[]{3L, 7L}));
+        autocompleteIndex.load();
+    }
+
+    private List<String> texts(String prefix) {
+        return autocompleteIndex.suggest(prefix, 10).stream().map(BookSuggestionDTO::getText).toList();
+    }
+
+    @Test
+    @DisplayName("Deve sugerir títulos e autores pelo prefixo, dos mais emprestados para os menos")
+    void suggest_ShouldRankByLoanCount() {
+        List<BookSuggestionDTO> suggestions = autocompleteIndex.suggest("ma", 10);
+
+        // Empates ficam em ordem alfabética
+        assertEquals(List.of("Machado de Assis", "Macunaíma", "Mário de Andrade"),
+                suggestions.stream().map(BookSuggestionDTO::getText).toList());
+        // O autor aparece uma vez só, com o livro dele mais emprestado
+        assertEquals(2L, suggestions.get(0).getBookId());
+        assertEquals(9, suggestions.get(0).getLoanCount());
+        assertEquals(BookSuggestionDTO.Field.AUTHOR, suggestions.get(0).getField());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar acentos, maiúsculas e o artigo inicial do título")
+    void suggest_ShouldNormalizePrefix() {
+        assertEquals(List.of("Memórias Póstumas de Brás Cubas"), texts("MEMO"));
+        assertEquals(List.of("O Cortiço"), texts("cortic"));
+        assertEquals(List.of("Mário de Andrade"), texts("mário "));
+        assertTrue(texts("xyz").isEmpty());
+        assertTrue(texts("  ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve limitar a quantidade de sugestões")
+    void suggest_ShouldRespectLimit() {
+        assertEquals(1, autocompleteIndex.suggest("m", 1).size());
+        assertEquals(List.of("Machado de Assis"),
+                autocompleteIndex.suggest("m", 1).stream().map(BookSuggestionDTO::getText).toList());
+    }
+
+    @Test
+    @DisplayName("Deve refletir livros criados, alterados e removidos e os novos empréstimos")
+    void onChanges_ShouldUpdateSuggestions() {
+        autocompleteIndex.onBookChanged(BookChangedEvent.created(5L, "978-8535914849", "Macbeth", "William Shakespeare", BookStatus.DISPONIVEL));
+        autocompleteIndex.onBookChanged(BookChangedEvent.updated(3L, "978-8535910668", "Macunaíma (edição crítica)", "Mário de Andrade", BookStatus.DISPONIVEL));
+        autocompleteIndex.onBookChanged(BookChangedEvent.deleted(4L, "978-8508133154"));
+        for (int i = 0; i < 10; i++) {
+            autocompleteIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, (long) i, 5L, 1L));
+        }
+        autocompleteIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.RETURNED, 0L, 5L, 1L));
+
+        assertEquals(List.of("Macbeth", "Machado de Assis", "Macunaíma (edição crítica)"), texts("mac"));
+        assertTrue(texts("cortico").isEmpty());
+
+        // Depois de juntar o overlay ao snapshot as sugestões continuam as mesmas
+        autocompleteIndex.rebuild();
+        assertEquals(List.of("Macbeth", "Machado de Assis", "Macunaíma (edição crítica)"), texts("mac"));
+        autocompleteIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 11L, 3L, 1L));
+        autocompleteIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 12L, 3L, 1L));
+        autocompleteIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 13L, 3L, 1L));
+        assertEquals(List.of("Macbeth", "Macunaíma (edição crítica)", "Machado de Assis"), texts("mac"));
+    }
+}
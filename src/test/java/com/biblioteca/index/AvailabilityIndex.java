@@ -0,0 +1,116 @@
+package com.biblioteca.index;
+
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityIndexTest {
+
+    @InjectMocks
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(bookRepository.streamAvailableIds()).thenReturn(Stream.of(1L, 2L, 3L));
+        availabilityIndex.load();
+    }
+
+    private static RoaringBitmap[] read(byte[] body, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        RoaringBitmap[] bitmaps = new RoaringBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new RoaringBitmap();
+            bitmaps[i].deserialize(buffer);
+            // deserialize não avança a posição do buffer
+            buffer.position(buffer.position() + bitmaps[i].serializedSizeInBytes());
+        }
+        assertFalse(buffer.hasRemaining());
+        return bitmaps;
+    }
+
+    @Test
+    @DisplayName("Deve retornar o bitmap completo sem versão e 'não modificado' com a versão atual")
+    void getAvailability_ShouldReturnFullBitmapThenNotModified() throws IOException {
+        AvailabilityIndex.Availability full = availabilityIndex.getAvailability(null);
+
+        assertEquals(AvailabilityIndex.Kind.FULL, full.kind());
+        assertEquals(RoaringBitmap.bitmapOf(1, 2, 3), read(full.body(), 1)[0]);
+        assertEquals(AvailabilityIndex.Kind.NOT_MODIFIED, availabilityIndex.getAvailability(full.version()).kind());
+        // Versões de outra carga do índice recebem o bitmap completo
+        assertEquals(AvailabilityIndex.Kind.FULL, availabilityIndex.getAvailability(full.version() + 1).kind());
+        assertEquals(AvailabilityIndex.Kind.FULL, availabilityIndex.getAvailability(7L).kind());
+    }
+
+    @Test
+    @DisplayName("Deve devolver só os livros que mudaram de disponibilidade desde a versão do cliente")
+    void getAvailability_ShouldReturnDeltaSinceVersion() throws IOException {
+        long since = availabilityIndex.getAvailability(null).version();
+        when(bookRepository.findStatusById(2L)).thenReturn(Optional.of(BookStatus.INDISPONIVEL));
+        when(bookRepository.findStatusById(3L)).thenReturn(Optional.of(BookStatus.INDISPONIVEL), Optional.of(BookStatus.DISPONIVEL));
+
+        availabilityIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 10L, 2L, 1L));
+        availabilityIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 11L, 3L, 1L));
+        availabilityIndex.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.RETURNED, 11L, 3L, 1L));
+        availabilityIndex.onBookChanged(BookChangedEvent.created(4L, "978-8535914849", "Vidas Secas", "Graciliano Ramos", BookStatus.DISPONIVEL));
+        availabilityIndex.onBookChanged(BookChangedEvent.created(5L, "978-8508133154", "O Cortiço", "Aluísio Azevedo", BookStatus.INDISPONIVEL));
+        availabilityIndex.onBookChanged(BookChangedEvent.deleted(1L, "978-8508127597"));
+
+        AvailabilityIndex.Availability delta = availabilityIndex.getAvailability(since);
+
+        assertEquals(AvailabilityIndex.Kind.DELTA, delta.kind());
+        // O livro 5 nunca esteve disponível e não gera versão
+        assertEquals(since + 5, delta.version());
+        RoaringBitmap[] bitmaps = read(delta.body(), 2);
+        assertEquals(RoaringBitmap.bitmapOf(3, 4), bitmaps[0]);
+        assertEquals(RoaringBitmap.bitmapOf(1, 2), bitmaps[1]);
+        assertEquals(RoaringBitmap.bitmapOf(3, 4), read(availabilityIndex.getAvailability(null).body(), 1)[0]);
+    }
+
+    @Test
+    @DisplayName("Deve retornar o bitmap completo quando a versão do cliente já saiu do log de mudanças")
+    void getAvailability_WithVersionOutsideLog_ShouldReturnFullBitmap() throws IOException {
+        long since = availabilityIndex.getAvailability(null).version();
+        for (int i = 0; i <= AvailabilityIndex.CHANGE_LOG_CAPACITY; i++) {
+            BookStatus status = i % 2 == 0 ? BookStatus.INDISPONIVEL : BookStatus.DISPONIVEL;
+            availabilityIndex.onBookChanged(BookChangedEvent.updated(1L, "978-8508127597", "Dom Casmurro", "Machado de Assis", status));
+        }
+
+        AvailabilityIndex.Availability availability = availabilityIndex.getAvailability(since);
+
+        assertEquals(AvailabilityIndex.Kind.FULL, availability.kind());
+        assertEquals(RoaringBitmap.bitmapOf(2, 3), read(availability.body(), 1)[0]);
+        assertEquals(AvailabilityIndex.Kind.DELTA, availabilityIndex.getAvailability(since + 1).kind());
+    }
+}
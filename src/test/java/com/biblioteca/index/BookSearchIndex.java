@@ -0,0 +1,93 @@
+package com.biblioteca.index;
+
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @InjectMocks
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(bookRepository.streamAllSearchFields()).thenReturn(Stream.of(
+                new Object[]{1L, "Memórias Póstumas de Brás Cubas", "Machado de Assis"},
+                new Object[]{2L, "Dom Casmurro", "Machado de Assis"},
+                new Object[]{3L, "Machado: uma biografia", "Lúcia Miguel Pereira"},
+                new Object[]{4L, "O Cortiço", "Aluísio Azevedo"}));
+        bookSearchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livros ignorando acentos e maiúsculas")
+    void search_ShouldIgnoreAccentsAndCase() {
+        assertEquals(List.of(1L), bookSearchIndex.search("memorias POSTUMAS", 0, 10).bookIds());
+        assertEquals(List.of(4L), bookSearchIndex.search("cortiço", 0, 10).bookIds());
+        assertEquals(List.of(4L), bookSearchIndex.search("cortico", 0, 10).bookIds());
+    }
+
+    @Test
+    @DisplayName("Deve exigir todos os termos da consulta")
+    void search_ShouldRequireAllTerms() {
+        assertEquals(List.of(2L), bookSearchIndex.search("casmurro machado", 0, 10).bookIds());
+        assertTrue(bookSearchIndex.search("casmurro azevedo", 0, 10).bookIds().isEmpty());
+        assertTrue(bookSearchIndex.search("de", 0, 10).bookIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve ordenar os livros com o termo no título antes dos que o têm só no autor e paginar")
+    void search_ShouldRankTitleMatchesFirstAndPaginate() {
+        BookSearchIndex.SearchHits firstPage = bookSearchIndex.search("machado", 0, 2);
+        BookSearchIndex.SearchHits secondPage = bookSearchIndex.search("machado", 2, 2);
+
+        assertEquals(List.of(3L, 1L), firstPage.bookIds());
+        assertEquals(List.of(2L), secondPage.bookIds());
+        assertEquals(3, firstPage.total());
+        assertEquals(3, secondPage.total());
+    }
+
+    @Test
+    @DisplayName("Deve refletir a criação, a atualização e a exclusão de livros")
+    void onBookChanged_ShouldUpdateIndex() {
+        bookSearchIndex.onBookChanged(BookChangedEvent.created(5L, "978-8535914849", "Vidas Secas", "Graciliano Ramos", BookStatus.DISPONIVEL));
+        assertEquals(List.of(5L), bookSearchIndex.search("vidas secas", 0, 10).bookIds());
+
+        bookSearchIndex.onBookChanged(BookChangedEvent.updated(2L, "978-8508127597", "Dom Casmurro (edição comentada)", "Machado de Assis", BookStatus.DISPONIVEL));
+        assertEquals(List.of(2L), bookSearchIndex.search("comentada", 0, 10).bookIds());
+
+        bookSearchIndex.onBookChanged(BookChangedEvent.updated(4L, "978-8508133154", "O Mulato", "Aluísio Azevedo", BookStatus.DISPONIVEL));
+        assertTrue(bookSearchIndex.search("cortico", 0, 10).bookIds().isEmpty());
+
+        bookSearchIndex.onBookChanged(BookChangedEvent.deleted(5L, "978-8535914849"));
+        assertTrue(bookSearchIndex.search("vidas", 0, 10).bookIds().isEmpty());
+    }
+}
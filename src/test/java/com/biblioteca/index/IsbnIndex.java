@@ -0,0 +1,185 @@
+package com.biblioteca.index;
+
+import com.biblioteca.config.CacheConfig;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
+import com.biblioteca.repository.BookRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockedStatic;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IsbnIndexTest {
+
+    @InjectMocks
+    private IsbnIndex isbnIndex;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(bookRepository.count()).thenReturn(1L);
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.of("978-0618640157"));
+        isbnIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Não deve impedir o registro das métricas dos caches do Spring no Prometheus")
+    void bindMetrics_ShouldKeepSpringCacheMetricsInPrometheus() {
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        ReflectionTestUtils.setField(isbnIndex, "meterRegistry", prometheus);
+
+        isbnIndex.bindMetrics();
+        // Como o actuator registra os caches do CacheManager, depois dos beans
+        new CacheMetricsRegistrar(prometheus, List.of(new CaffeineCacheMeterBinderProvider()))
+                .bindCacheToRegistry(new CaffeineCache(CacheConfig.BOOKS, Caffeine.newBuilder().recordStats().build()),
+                        Tag.of("cache.manager", "cacheManager"));
+
+        List<String> gets = prometheus.scrape().lines().filter(line -> line.startsWith("cache_gets_total{")).toList();
+        assertTrue(gets.stream().anyMatch(line -> line.contains("cache=\"isbnNearCache\"")));
+        assertTrue(gets.stream().anyMatch(line -> line.contains("cache=\"books\"")));
+    }
+
+    @Test
+    @DisplayName("Deve responder um ISBN fora do catálogo sem consultar o banco")
+    void findBookId_WhenIsbnIsNotInCatalog_ShouldNotQueryDatabase() {
+        assertTrue(isbnIndex.findBookId("978-0000000000").isEmpty());
+
+        verify(bookRepository, never()).findIdByIsbn(any());
+        assertEquals(1.0, meterRegistry.counter(IsbnIndex.NEGATIVE_LOOKUPS_METRIC).count());
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco uma única vez para um ISBN cadastrado e depois usar o near cache")
+    void findBookId_WhenIsbnExists_ShouldCacheId() {
+        when(bookRepository.findIdByIsbn("978-0618640157")).thenReturn(Optional.of(1L));
+
+        assertEquals(Optional.of(1L), isbnIndex.findBookId("978-0618640157"));
+        assertEquals(Optional.of(1L), isbnIndex.findBookId("978-0618640157"));
+
+        verify(bookRepository, times(1)).findIdByIsbn("978-0618640157");
+    }
+
+    @Test
+    @DisplayName("Deve encontrar sem consultar o banco um livro criado depois da montagem do índice")
+    void onBookChanged_WhenCreated_ShouldAddIsbn() {
+        isbnIndex.onBookChanged(BookChangedEvent.created(2L, "978-0261102354", "O Hobbit", "J.R.R. Tolkien", BookStatus.DISPONIVEL));
+
+        assertEquals(Optional.of(2L), isbnIndex.findBookId("978-0261102354"));
+        verify(bookRepository, never()).findIdByIsbn(any());
+    }
+
+    @Test
+    @DisplayName("Deve esquecer o id de um livro apagado e voltar a consultar o banco")
+    void onBookChanged_WhenDeleted_ShouldInvalidateNearCache() {
+        isbnIndex.onBookChanged(BookChangedEvent.created(2L, "978-0261102354", "O Hobbit", "J.R.R. Tolkien", BookStatus.DISPONIVEL));
+        isbnIndex.onBookChanged(BookChangedEvent.deleted(2L, "978-0261102354"));
+        when(bookRepository.findIdByIsbn("978-0261102354")).thenReturn(Optional.empty());
+
+        assertTrue(isbnIndex.findBookId("978-0261102354").isEmpty());
+        verify(bookRepository, times(1)).findIdByIsbn("978-0261102354");
+    }
+
+    @Test
+    @DisplayName("Deve manter no filtro novo um livro criado enquanto o banco é lido na reconstrução")
+    void rebuild_WhenBookIsCreatedDuringRebuild_ShouldKeepIsbn() {
+        // A leitura do banco começou antes do commit do livro novo, então ele não vem no stream
+        when(bookRepository.streamAllIsbns()).thenAnswer(invocation -> {
+            isbnIndex.onBookChanged(BookChangedEvent.created(2L, "978-0261102354", "O Hobbit", "J.R.R. Tolkien", BookStatus.DISPONIVEL));
+            return Stream.of("978-0618640157");
+        });
+
+        isbnIndex.rebuild();
+
+        assertEquals(Optional.of(2L), isbnIndex.findBookId("978-0261102354"));
+        verify(bookRepository, never()).findIdByIsbn(any());
+    }
+
+    @Test
+    @DisplayName("Não deve perder o ISBN adicionado no momento em que a reconstrução publica o filtro novo")
+    void onBookChanged_WhenRebuildFinishesDuringAdd_ShouldNotLoseIsbn() throws Exception {
+        String isbn = "978-0261102354";
+        AtomicBoolean paused = new AtomicBoolean();
+        CountDownLatch inAdd = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        // O primeiro filtro que receber o ISBN segura o add até a reconstrução terminar: é a janela entre as
+        // leituras de filter e rebuilding dentro do add
+        Function<BloomFilter, BloomFilter> pausing = real -> {
+            BloomFilter filter = spy(real);
+            // lenient: só o filtro que o add consulta primeiro chega a usar o stub
+            lenient().doAnswer(invocation -> {
+                if (paused.compareAndSet(false, true)) {
+                    inAdd.countDown();
+                    assertTrue(rebuilt.await(5, TimeUnit.SECONDS));
+                }
+                return invocation.callRealMethod();
+            }).when(filter).add(isbn);
+            return filter;
+        };
+
+        try (MockedStatic<BloomFilter> bloomFilters = mockStatic(BloomFilter.class, CALLS_REAL_METHODS)) {
+            bloomFilters.when(() -> BloomFilter.create(anyLong(), anyDouble()))
+                    .thenAnswer(invocation -> pausing.apply((BloomFilter) invocation.callRealMethod()));
+            when(bookRepository.streamAllIsbns()).thenAnswer(invocation -> Stream.of("978-0618640157"));
+            isbnIndex.rebuild();
+
+            // A leitura do banco começou antes do commit do livro, então ele não vem no stream
+            Thread[] adder = new Thread[1];
+            when(bookRepository.streamAllIsbns()).thenAnswer(invocation -> {
+                adder[0] = Thread.ofPlatform().start(() -> isbnIndex.onBookChanged(
+                        BookChangedEvent.created(2L, isbn, "O Hobbit", "J.R.R. Tolkien", BookStatus.DISPONIVEL)));
+                assertTrue(inAdd.await(5, TimeUnit.SECONDS));
+                return Stream.of("978-0618640157");
+            });
+            isbnIndex.rebuild();
+            rebuilt.countDown();
+            adder[0].join();
+        }
+
+        assertEquals(Optional.of(2L), isbnIndex.findBookId(isbn));
+        verify(bookRepository, never()).findIdByIsbn(any());
+    }
+}
@@ -0,0 +1,252 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.entity.Loan;
+import com.biblioteca.entity.LoanStatus;
+import com.biblioteca.entity.Users;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookRepositoryTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve reservar uma cópia e manter o livro DISPONIVEL enquanto houver cópias")
+    void reserveCopy_WithCopiesLeft_ShouldDecrementQuantity() {
+        Book book = persistBook(3, 3);
+
+        assertEquals(1, bookRepository.reserveCopy(book.getId()));
+
+        Book reloaded = reload(book);
+        assertEquals(2, reloaded.getAvailableQuantity());
+        assertEquals(BookStatus.DISPONIVEL, reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve marcar o livro como INDISPONIVEL ao reservar a última cópia e recusar a próxima reserva")
+    void reserveCopy_WhenLastCopy_ShouldSetUnavailableAndRejectNext() {
+        Book book = persistBook(2, 1);
+
+        assertEquals(1, bookRepository.reserveCopy(book.getId()));
+        assertEquals(0, bookRepository.reserveCopy(book.getId()));
+
+        Book reloaded = reload(book);
+        assertEquals(0, reloaded.getAvailableQuantity());
+        assertEquals(BookStatus.INDISPONIVEL, reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 0 ao reservar um livro que não existe")
+    void reserveCopy_WhenBookDoesNotExist_ShouldReturnZero() {
+        assertEquals(0, bookRepository.reserveCopy(999L));
+    }
+
+    @Test
+    @DisplayName("Deve devolver a cópia e voltar o livro para DISPONIVEL")
+    void releaseCopy_WhenUnavailable_ShouldSetAvailable() {
+        Book book = persistBook(1, 1);
+        bookRepository.reserveCopy(book.getId());
+
+        assertEquals(1, bookRepository.releaseCopy(book.getId()));
+
+        Book reloaded = reload(book);
+        assertEquals(1, reloaded.getAvailableQuantity());
+        assertEquals(BookStatus.DISPONIVEL, reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Nunca deve deixar availableQuantity passar de totalQuantity")
+    void releaseCopy_WhenAllCopiesAvailable_ShouldNotExceedTotal() {
+        Book book = persistBook(2, 2);
+
+        assertEquals(0, bookRepository.releaseCopy(book.getId()));
+
+        assertEquals(2, reload(book).getAvailableQuantity());
+    }
+
+    @Test
+    @DisplayName("Os UPDATEs diretos de reserva e devolução devem incrementar a versão do livro")
+    void reserveAndRelease_ShouldIncrementVersion() {
+        Book book = persistBook(2, 2);
+        assertEquals(0L, reload(book).getVersion());
+
+        bookRepository.reserveCopy(book.getId());
+        bookRepository.releaseCopy(book.getId());
+        bookRepository.reserveCopies(List.of(book.getId()));
+        bookRepository.releaseCopies(Map.of(book.getId(), 1));
+
+        assertEquals(4L, reload(book).getVersion());
+    }
+
+    @Test
+    @DisplayName("Deve reservar as cópias em batch e informar o resultado de cada livro")
+    void reserveCopies_ShouldReturnCountPerBook() {
+        Book available = persistBook(2, 2);
+        Book lastCopy = persistBook(1, 1, "978-0618640158");
+        Book unavailable = persistBook(1, 0, "978-0618640159");
+
+        int[] reserved = bookRepository.reserveCopies(List.of(available.getId(), lastCopy.getId(), unavailable.getId(), lastCopy.getId()));
+
+        assertArrayEquals(new int[]{1, 1, 0, 0}, reserved);
+        assertEquals(1, reload(available).getAvailableQuantity());
+        assertEquals(BookStatus.INDISPONIVEL, reload(lastCopy).getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve devolver várias cópias por livro limitando ao total de cópias")
+    void releaseCopies_ShouldAddCopiesUpToTotal() {
+        Book unavailable = persistBook(3, 0);
+        Book almostFull = persistBook(3, 2, "978-0618640158");
+
+        bookRepository.releaseCopies(Map.of(unavailable.getId(), 2, almostFull.getId(), 5));
+
+        Book reloadedUnavailable = reload(unavailable);
+        assertEquals(2, reloadedUnavailable.getAvailableQuantity());
+        assertEquals(BookStatus.DISPONIVEL, reloadedUnavailable.getStatus());
+        assertEquals(3, reload(almostFull).getAvailableQuantity());
+    }
+
+    @Test
+    @DisplayName("Deve filtrar o catálogo por status, autor e faixa de ano e paginar com o id desempatando")
+    void findCatalog_WithFilters_ShouldFilterAndPageStably() {
+        for (int i = 0; i < 5; i++) {
+            persistCatalogBook("Contos", "Machado de Assis", 1880 + i, BookStatus.DISPONIVEL, "978-00000000" + i);
+        }
+        persistCatalogBook("Contos", "Machado de Assis", 1899, BookStatus.DISPONIVEL, "978-0000000010");
+        persistCatalogBook("Contos", "Machado de Assis", 1882, BookStatus.INDISPONIVEL, "978-0000000011");
+        persistCatalogBook("Contos", "Lima Barreto", 1882, BookStatus.DISPONIVEL, "978-0000000012");
+
+        Specification<Book> filters = BookSpecifications.catalog(BookStatus.DISPONIVEL, "Machado de Assis", 1880, 1890);
+        Sort sort = Sort.by("title").and(Sort.by("id"));
+        Page<BookSummaryDTO> first = bookRepository.findCatalog(filters, PageRequest.of(0, 3, sort));
+        Page<BookSummaryDTO> second = bookRepository.findCatalog(filters, PageRequest.of(1, 3, sort));
+
+        assertEquals(5, first.getTotalElements());
+        assertEquals(5, second.getTotalElements());
+        List<Long> ids = Stream.concat(first.stream(), second.stream()).map(BookSummaryDTO::getId).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertEquals(5, ids.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("A página do catálogo deve sair de uma única consulta, sem carregar livros nem empréstimos")
+    void findCatalog_ShouldProjectWithoutLoadingEntities() {
+        Book book = persistBook(3, 3);
+        Users user = new Users();
+        user.setName("Carlos Santana");
+        user.setEmail("carlos@biblioteca.com");
+        user.setCpf("12345678900");
+        entityManager.persist(user);
+        for (int i = 0; i < 20; i++) {
+            Loan loan = new Loan();
+            loan.setBook(entityManager.find(Book.class, book.getId()));
+            loan.setUser(user);
+            loan.setLoanDate(LocalDate.now().minusDays(i));
+            loan.setExpectedReturnDate(LocalDate.now().plusDays(14));
+            loan.setStatus(LoanStatus.DEVOLVIDO);
+            entityManager.persist(loan);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<BookSummaryDTO> page = bookRepository.findCatalog(BookSpecifications.catalog(null, null, null, null),
+                PageRequest.of(0, 20, Sort.by("title", "id")));
+
+        assertEquals(1, page.getTotalElements());
+        BookSummaryDTO summary = page.getContent().get(0);
+        assertEquals(book.getId(), summary.getId());
+        assertEquals("O Senhor dos Anéis", summary.getTitle());
+        assertEquals(3, summary.getAvailableQuantity());
+        assertEquals(BookStatus.DISPONIVEL, summary.getStatus());
+        assertEquals(0L, summary.getVersion());
+        // Página incompleta: o total sai do próprio resultado, sem o COUNT
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    @DisplayName("Deve usar os índices do catálogo em cada filtro e na ordenação padrão")
+    void catalogQueries_ShouldUseIndexes() {
+        assertTrue(explain("select * from book where author = 'Machado de Assis' " +
+                "and publication_year between 1880 and 1890 order by title, id")
+                .contains("idx_book_author_publication_year"));
+        assertTrue(explain("select * from book where status = 'DISPONIVEL' order by title, id limit 20")
+                .contains("idx_book_status_title_id"));
+        assertTrue(explain("select * from book where publication_year >= 1900 order by title, id")
+                .contains("idx_book_publication_year"));
+        // Sem filtros a página sai na ordem do índice, sem ordenar a tabela
+        String unfiltered = explain("select * from book order by title, id limit 20");
+        assertTrue(unfiltered.contains("idx_book_title_id"));
+        assertTrue(unfiltered.contains("index sorted"));
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(entityManager.getEntityManager().createNativeQuery("explain " + sql).getSingleResult());
+    }
+
+    private void persistCatalogBook(String title, String author, int year, BookStatus status, String isbn) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPublicationYear(year);
+        book.setIsbn(isbn);
+        book.setTotalQuantity(1);
+        book.setAvailableQuantity(status == BookStatus.DISPONIVEL ? 1 : 0);
+        book.setStatus(status);
+        entityManager.persist(book);
+    }
+
+    private Book persistBook(int totalQuantity, int availableQuantity) {
+        return persistBook(totalQuantity, availableQuantity, "978-0618640157");
+    }
+
+    private Book persistBook(int totalQuantity, int availableQuantity, String isbn) {
+        Book book = new Book();
+        book.setTitle("O Senhor dos Anéis");
+        book.setAuthor("J.R.R. Tolkien");
+        book.setIsbn(isbn);
+        book.setTotalQuantity(totalQuantity);
+        book.setAvailableQuantity(availableQuantity);
+        book.setStatus(availableQuantity > 0 ? BookStatus.DISPONIVEL : BookStatus.INDISPONIVEL);
+        Book persisted = entityManager.persistAndFlush(book);
+        entityManager.clear();
+        return persisted;
+    }
+
+    private Book reload(Book book) {
+        entityManager.clear();
+        return entityManager.find(Book.class, book.getId());
+    }
+}
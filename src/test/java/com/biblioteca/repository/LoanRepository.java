@@ -0,0 +1,295 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.dto.LoanResponseDTO;
+import com.biblioteca.entity.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LoanRepositoryTest {
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Users user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        user = new Users();
+        user.setName("Carlos Santana");
+        user.setEmail("carlos@biblioteca.com");
+        user.setCpf("12345678900");
+        entityManager.persist(user);
+    }
+
+    @Test
+    @DisplayName("Deve montar o DTO de resposta com título do livro e nome do usuário")
+    void findResponsesByUserId_ShouldProjectBookTitleAndUserName() {
+        Loan loan = persistLoan(persistBook("978-0000000001"), user);
+        entityManager.clear();
+
+        List<LoanResponseDTO> result = loanRepository.findResponsesByUserId(user.getId());
+
+        assertEquals(1, result.size());
+        assertEquals(loan.getId(), result.get(0).getId());
+        assertEquals("Livro 978-0000000001", result.get(0).getBookTitle());
+        assertEquals("Carlos Santana", result.get(0).getUserName());
+    }
+
+    @Test
+    @DisplayName("Deve devolver o empréstimo apenas uma vez")
+    void markReturned_ShouldOnlySucceedOnce() {
+        Loan loan = persistLoan(persistBook("978-0000000002"), user);
+        entityManager.flush();
+
+        assertEquals(1, loanRepository.markReturned(loan.getId(), LocalDate.now()));
+        assertEquals(0, loanRepository.markReturned(loan.getId(), LocalDate.now()));
+
+        Loan reloaded = entityManager.find(Loan.class, loan.getId());
+        assertEquals(LoanStatus.DEVOLVIDO, reloaded.getStatus());
+        assertEquals(LocalDate.now(), reloaded.getReturnDate());
+    }
+
+    @Test
+    @DisplayName("Deve inserir os empréstimos em batch e preencher os ids gerados")
+    void insertAll_ShouldAssignGeneratedIds() {
+        Book first = persistBook("978-0000000003");
+        Book second = persistBook("978-0000000004");
+        entityManager.flush();
+
+        Loan firstLoan = newLoan(first, user);
+        Loan secondLoan = newLoan(second, user);
+        loanRepository.insertAll(List.of(firstLoan, secondLoan));
+
+        assertNotNull(firstLoan.getId());
+        assertNotNull(secondLoan.getId());
+        List<LoanResponseDTO> inserted = loanRepository.findResponsesByIds(List.of(firstLoan.getId(), secondLoan.getId()));
+        assertEquals(2, inserted.size());
+        assertTrue(inserted.stream().allMatch(loan -> loan.getStatus() == LoanStatus.ATIVO));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar os empréstimos em aberto por ISBN e devolvê-los em um único UPDATE")
+    void findOpenLoanIdsByIsbn_AndMarkAllReturned() {
+        Book book = persistBook("978-0000000005");
+        Loan oldest = persistLoan(book, user);
+        Loan newest = persistLoan(book, user);
+        entityManager.flush();
+
+        List<Object[]> open = loanRepository.findOpenLoanIdsByIsbn(List.of("978-0000000005"));
+        assertEquals(2, open.size());
+        assertEquals(oldest.getId(), open.get(0)[0]);
+
+        assertEquals(2, loanRepository.markAllReturned(List.of(oldest.getId(), newest.getId()), LocalDate.now()));
+        assertTrue(loanRepository.findOpenLoanIdsByIsbn(List.of("978-0000000005")).isEmpty());
+        assertEquals(2, loanRepository.findAllByIdForUpdate(List.of(oldest.getId(), newest.getId())).size());
+    }
+
+    @Test
+    @DisplayName("Deve buscar em lotes apenas os empréstimos ATIVO vencidos e marcá-los como ATRASADO")
+    void findOverdueIds_AndMarkOverdue() {
+        LocalDate today = LocalDate.now();
+        Loan oldest = persistLoan(persistBook("978-0000000006"), user, today.minusDays(10));
+        Loan overdue = persistLoan(persistBook("978-0000000007"), user, today.minusDays(1));
+        persistLoan(persistBook("978-0000000008"), user, today);
+        Loan returned = persistLoan(persistBook("978-0000000009"), user, today.minusDays(5));
+        returned.setStatus(LoanStatus.DEVOLVIDO);
+        entityManager.flush();
+
+        List<Long> firstChunk = loanRepository.findOverdueIds(today, Limit.of(1));
+        assertEquals(List.of(oldest.getId()), firstChunk);
+        assertEquals(1, loanRepository.markOverdue(firstChunk));
+
+        // O que já foi marcado sai do filtro, então o próximo lote continua de onde o anterior parou
+        List<Long> secondChunk = loanRepository.findOverdueIds(today, Limit.of(1));
+        assertEquals(List.of(overdue.getId()), secondChunk);
+        assertEquals(1, loanRepository.markOverdue(secondChunk));
+
+        assertTrue(loanRepository.findOverdueIds(today, Limit.of(1)).isEmpty());
+        assertEquals(0, loanRepository.markOverdue(List.of(oldest.getId(), returned.getId())));
+        assertEquals(LoanStatus.ATRASADO, entityManager.find(Loan.class, oldest.getId()).getStatus());
+        assertEquals(LoanStatus.DEVOLVIDO, entityManager.find(Loan.class, returned.getId()).getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve contar total, não devolvidos e atrasados por usuário em uma única consulta")
+    void countLoansByUsers_ShouldAggregatePerUser() {
+        Users other = new Users();
+        other.setName("Cecília Meireles");
+        other.setEmail("cecilia@biblioteca.com");
+        other.setCpf("98765432100");
+        entityManager.persist(other);
+        Users withoutLoans = new Users();
+        withoutLoans.setName("Clarice Lispector");
+        withoutLoans.setEmail("clarice@biblioteca.com");
+        withoutLoans.setCpf("55555555555");
+        entityManager.persist(withoutLoans);
+        persistLoan(persistBook("978-0000000030"), user);
+        persistLoan(persistBook("978-0000000031"), user).setStatus(LoanStatus.ATRASADO);
+        persistLoan(persistBook("978-0000000032"), user).setStatus(LoanStatus.DEVOLVIDO);
+        persistLoan(persistBook("978-0000000033"), other).setStatus(LoanStatus.DEVOLVIDO);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        Map<Long, List<Long>> counts = loanRepository.countLoansByUsers(List.of(user.getId(), other.getId(), withoutLoans.getId()))
+                .stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> Stream.of(row[1], row[2], row[3])
+                        .map(value -> ((Number) value).longValue()).toList()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(List.of(3L, 2L, 1L), counts.get(user.getId()));
+        assertEquals(List.of(1L, 0L, 0L), counts.get(other.getId()));
+        assertFalse(counts.containsKey(withoutLoans.getId()));
+    }
+
+    @Test
+    @DisplayName("Deve contar por usuário só os empréstimos não devolvidos do livro")
+    void countOpenLoansByUser_ShouldIgnoreReturnedLoansAndOtherBooks() {
+        Users other = new Users();
+        other.setName("Cecília Meireles");
+        other.setEmail("cecilia@biblioteca.com");
+        other.setCpf("98765432100");
+        entityManager.persist(other);
+        Book book = persistBook("978-0000000040");
+        persistLoan(book, user);
+        persistLoan(book, user).setStatus(LoanStatus.ATRASADO);
+        persistLoan(book, other).setStatus(LoanStatus.DEVOLVIDO);
+        persistLoan(persistBook("978-0000000041"), other);
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<Long, Long> counts = loanRepository.countOpenLoansByUser(book.getId()).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> ((Number) row[1]).longValue()));
+
+        assertEquals(Map.of(user.getId(), 2L), counts);
+    }
+
+    @Test
+    @DisplayName("Deve criar o índice (status, expected_return_date) na tabela loan")
+    void loanTable_ShouldHaveStatusAndExpectedReturnDateIndex() {
+        Number indexes = (Number) entityManager.getEntityManager().createNativeQuery(
+                        "select count(*) from information_schema.indexes " +
+                                "where lower(index_name) = 'idx_loan_status_expected_return_date'")
+                .getSingleResult();
+
+        assertEquals(1, indexes.intValue());
+    }
+
+    @Test
+    @DisplayName("Deve executar a mesma quantidade de SQL na página de empréstimos para 1 ou N registros")
+    void findResponsePageAfter_StatementCountShouldNotDependOnRowCount() {
+        long withOneRow = countStatements(1, () ->
+                loanRepository.findResponsePageAfter(0L, null, null, null, Limit.of(100)));
+        long withManyRows = countStatements(20, () ->
+                loanRepository.findResponsePageAfter(0L, null, null, null, Limit.of(100)));
+
+        assertEquals(1, withOneRow);
+        assertEquals(withOneRow, withManyRows);
+    }
+
+    @Test
+    @DisplayName("Deve executar a mesma quantidade de SQL nos empréstimos do usuário para 1 ou N registros")
+    void findResponsesByUserId_StatementCountShouldNotDependOnRowCount() {
+        long withOneRow = countStatements(1, () -> loanRepository.findResponsesByUserId(user.getId()));
+        long withManyRows = countStatements(20, () -> loanRepository.findResponsesByUserId(user.getId()));
+
+        assertEquals(1, withOneRow);
+        assertEquals(withOneRow, withManyRows);
+    }
+
+    @Test
+    @DisplayName("Deve executar uma única consulta ao transmitir os empréstimos")
+    void streamResponses_StatementCountShouldNotDependOnRowCount() {
+        long withManyRows = countStatements(20, () -> {
+            try (Stream<LoanResponseDTO> loans = loanRepository.streamResponses(LoanStatus.ATIVO, null, null)) {
+                return loans.collect(Collectors.toList());
+            }
+        });
+
+        assertEquals(1, withManyRows);
+    }
+
+    private long countStatements(int loans, Supplier<List<LoanResponseDTO>> listing) {
+        long existing = loanRepository.count();
+        for (int i = 0; i < loans; i++) {
+            // cada empréstimo com livro e usuário próprios, o pior caso para N+1
+            Users borrower = new Users();
+            borrower.setName("Usuário " + existing + "-" + i);
+            borrower.setEmail("usuario" + existing + "-" + i + "@biblioteca.com");
+            borrower.setCpf("cpf" + existing + "-" + i);
+            entityManager.persist(borrower);
+            persistLoan(persistBook("isbn-" + existing + "-" + i), borrower);
+            persistLoan(persistBook("isbn-u-" + existing + "-" + i), user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        List<LoanResponseDTO> result = listing.get();
+        assertFalse(result.isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Book persistBook(String isbn) {
+        Book book = new Book();
+        book.setTitle("Livro " + isbn);
+        book.setAuthor("Autor");
+        book.setIsbn(isbn);
+        book.setTotalQuantity(1);
+        book.setAvailableQuantity(1);
+        book.setStatus(BookStatus.DISPONIVEL);
+        return entityManager.persist(book);
+    }
+
+    private Loan persistLoan(Book book, Users borrower) {
+        return entityManager.persist(newLoan(book, borrower));
+    }
+
+    private Loan persistLoan(Book book, Users borrower, LocalDate expectedReturnDate) {
+        Loan loan = newLoan(book, borrower);
+        loan.setLoanDate(expectedReturnDate.minusDays(14));
+        loan.setExpectedReturnDate(expectedReturnDate);
+        return entityManager.persist(loan);
+    }
+
+    private Loan newLoan(Book book, Users borrower) {
+        Loan loan = new Loan();
+        loan.setBook(book);
+        loan.setUser(borrower);
+        loan.setLoanDate(LocalDate.now());
+        loan.setExpectedReturnDate(LocalDate.now().plusDays(14));
+        loan.setStatus(LoanStatus.ATIVO);
+        return loan;
+    }
+}
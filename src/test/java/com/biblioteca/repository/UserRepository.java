@@ -0,0 +1,131 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTest {
+
+    private static final int LIMIT = 3;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Users user;
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setName("Carlos Santana");
+        user.setEmail("carlos@biblioteca.com");
+        user.setCpf("12345678900");
+        entityManager.persistAndFlush(user);
+    }
+
+    @Test
+    @DisplayName("Deve começar com o contador de empréstimos ativos zerado")
+    void persist_ShouldStartCounterAtZero() {
+        assertEquals(0, activeLoanCount());
+    }
+
+    @Test
+    @DisplayName("Deve ocupar slots até o limite e recusar o próximo")
+    void acquireLoanSlots_ShouldEnforceLimit() {
+        assertTrue(userRepository.acquireLoanSlots(user.getId(), 2, LIMIT));
+        assertTrue(userRepository.acquireLoanSlots(user.getId(), 1, LIMIT));
+        assertFalse(userRepository.acquireLoanSlots(user.getId(), 1, LIMIT));
+
+        assertEquals(3, activeLoanCount());
+    }
+
+    @Test
+    @DisplayName("Deve recusar slots para usuário inativo")
+    void acquireLoanSlots_WhenUserIsInactive_ShouldReturnFalse() {
+        user.setStatus(UserStatus.INATIVO);
+        entityManager.persistAndFlush(user);
+
+        assertFalse(userRepository.acquireLoanSlots(user.getId(), 1, LIMIT));
+        assertEquals(0, activeLoanCount());
+    }
+
+    @Test
+    @DisplayName("Deve liberar slots sem deixar o contador negativo")
+    void releaseLoanSlots_ShouldNotGoBelowZero() {
+        userRepository.acquireLoanSlots(user.getId(), 1, LIMIT);
+
+        userRepository.releaseLoanSlots(Map.of(user.getId(), 2));
+
+        assertEquals(0, activeLoanCount());
+    }
+
+    @Test
+    @DisplayName("Os UPDATEs do contador devem incrementar a versão do usuário")
+    void loanSlotUpdates_ShouldIncrementVersion() {
+        long version = user.getVersion();
+
+        userRepository.acquireLoanSlots(user.getId(), 1, LIMIT);
+        userRepository.releaseLoanSlots(Map.of(user.getId(), 1));
+
+        entityManager.clear();
+        assertEquals(version + 2, entityManager.find(Users.class, user.getId()).getVersion());
+    }
+
+    @Test
+    @DisplayName("A conciliação deve provar que o contador bate com os empréstimos não devolvidos")
+    void findActiveLoanCountMismatches_ShouldMatchLoansTable() {
+        Book book = new Book();
+        book.setTitle("O Senhor dos Anéis");
+        book.setAuthor("J.R.R. Tolkien");
+        book.setIsbn("978-0618640157");
+        book.setTotalQuantity(5);
+        book.setAvailableQuantity(5);
+        book.setStatus(BookStatus.DISPONIVEL);
+        entityManager.persist(book);
+        persistLoan(book, LoanStatus.ATIVO);
+        persistLoan(book, LoanStatus.ATRASADO);
+        persistLoan(book, LoanStatus.DEVOLVIDO);
+        entityManager.flush();
+
+        List<long[]> mismatches = userRepository.findActiveLoanCountMismatches();
+        assertEquals(1, mismatches.size());
+        assertArrayEquals(new long[]{user.getId(), 0L, 2L}, mismatches.get(0));
+
+        assertEquals(1, userRepository.recountActiveLoans(List.of(user.getId())));
+
+        assertTrue(userRepository.findActiveLoanCountMismatches().isEmpty());
+        assertEquals(2, activeLoanCount());
+    }
+
+    private void persistLoan(Book book, LoanStatus status) {
+        Loan loan = new Loan();
+        loan.setBook(book);
+        loan.setUser(user);
+        loan.setLoanDate(LocalDate.now());
+        loan.setExpectedReturnDate(LocalDate.now().plusDays(14));
+        loan.setStatus(status);
+        entityManager.persist(loan);
+    }
+
+    private int activeLoanCount() {
+        entityManager.clear();
+        return entityManager.find(Users.class, user.getId()).getActiveLoanCount();
+    }
+}
@@ -0,0 +1,171 @@
+package com.biblioteca.service;
+
+import com.biblioteca.index.AvailabilityIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityFeedServiceTest {
+
+    @InjectMocks
+    private AvailabilityFeedService availabilityFeedService;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void tearDown() {
+        availabilityFeedService.shutdown();
+    }
+
+    // Guarda o texto de cada evento enviado; com o portão fechado o envio bloqueia, como um cliente lento
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch gate;
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            events.add(builder.build().stream().map(data -> data.getData().toString()).collect(Collectors.joining()));
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "Nenhum evento enviado");
+            return event;
+        }
+    }
+
+    private static AvailabilityIndex.Changes changes(long version, RoaringBitmap added, RoaringBitmap removed) {
+        return new AvailabilityIndex.Changes(version, added, removed);
+    }
+
+    @Test
+    @DisplayName("Deve mandar reset ao assinante novo e depois só os livros que mudaram desde a última publicação")
+    void subscribe_WithoutLastEventId_ShouldResetThenStreamChanges() throws Exception {
+        when(availabilityIndex.version()).thenReturn(100L, 100L, 103L);
+        when(availabilityIndex.changesSince(100L))
+                .thenReturn(changes(103L, RoaringBitmap.bitmapOf(1, 2), RoaringBitmap.bitmapOf(3)));
+        availabilityFeedService.flush();
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+
+        availabilityFeedService.subscribe(null, emitter);
+        assertEquals("id:100\nevent:reset\ndata:{\"version\":100,\"available\":[],\"unavailable\":[]}\n\n", emitter.next());
+
+        availabilityFeedService.flush();
+        assertEquals("id:103\nevent:availability\ndata:{\"version\":103,\"available\":[1,2],\"unavailable\":[3]}\n\n", emitter.next());
+        // Sem mudança no índice o flush não publica nada
+        availabilityFeedService.flush();
+        assertNull(emitter.events.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, availabilityFeedService.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Deve retomar do Last-Event-ID quando a versão ainda está no log, e mandar reset quando não está")
+    void subscribe_WithLastEventId_ShouldSendOnlyMissedChanges() throws Exception {
+        when(availabilityIndex.changesSince(90L))
+                .thenReturn(changes(95L, RoaringBitmap.bitmapOf(7), new RoaringBitmap()));
+        when(availabilityIndex.changesSince(5L)).thenReturn(null);
+        when(availabilityIndex.version()).thenReturn(95L);
+        RecordingEmitter resumed = new RecordingEmitter(new CountDownLatch(0));
+        RecordingEmitter stale = new RecordingEmitter(new CountDownLatch(0));
+
+        availabilityFeedService.subscribe(90L, resumed);
+        availabilityFeedService.subscribe(5L, stale);
+
+        assertEquals("id:95\nevent:availability\ndata:{\"version\":95,\"available\":[7],\"unavailable\":[]}\n\n", resumed.next());
+        assertTrue(stale.next().startsWith("id:95\nevent:reset\n"));
+    }
+
+    @Test
+    @DisplayName("Deve juntar por livro os lotes de um assinante lento e trocar por reset quando passam do limite")
+    void flush_WithSlowSubscriber_ShouldCoalesceAndBoundPendingChanges() throws Exception {
+        when(availabilityIndex.version()).thenReturn(100L, 100L, 100L, 101L, 102L, 103L, 104L);
+        when(availabilityIndex.changesSince(100L)).thenReturn(changes(101L, RoaringBitmap.bitmapOf(1), new RoaringBitmap()));
+        when(availabilityIndex.changesSince(101L)).thenReturn(changes(102L, RoaringBitmap.bitmapOf(2), RoaringBitmap.bitmapOf(1)));
+        when(availabilityIndex.changesSince(102L)).thenReturn(changes(103L, RoaringBitmap.bitmapOfRange(1, 700), new RoaringBitmap()));
+        when(availabilityIndex.changesSince(103L)).thenReturn(changes(104L, new RoaringBitmap(), RoaringBitmap.bitmapOfRange(700, 1400)));
+        availabilityFeedService.flush();
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(gate);
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        availabilityFeedService.subscribe(null, slow);
+        availabilityFeedService.subscribe(null, fast);
+        fast.next();
+        assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+
+        // O envio do reset está preso no cliente lento enquanto os dois lotes chegam
+        availabilityFeedService.flush();
+        assertEquals("id:101\nevent:availability\ndata:{\"version\":101,\"available\":[1],\"unavailable\":[]}\n\n", fast.next());
+        availabilityFeedService.flush();
+        assertEquals("id:102\nevent:availability\ndata:{\"version\":102,\"available\":[2],\"unavailable\":[1]}\n\n", fast.next());
+        gate.countDown();
+        assertTrue(slow.next().startsWith("id:100\nevent:reset\n"));
+        assertEquals("id:102\nevent:availability\ndata:{\"version\":102,\"available\":[2],\"unavailable\":[1]}\n\n", slow.next());
+        assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+
+        // Mais de maxPending livros pendentes: descarta o acumulado e pede que o cliente recarregue
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(blocked);
+        availabilityFeedService.subscribe(101L, stuck);
+        assertTrue(stuck.started.await(5, TimeUnit.SECONDS));
+        availabilityFeedService.flush();
+        availabilityFeedService.flush();
+        blocked.countDown();
+        assertTrue(stuck.next().startsWith("id:102\nevent:availability\n"));
+        assertTrue(stuck.next().startsWith("id:104\nevent:reset\n"));
+        assertNull(stuck.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Deve descartar o lote de um flush montado antes do catch-up do assinante e entregue depois dele")
+    void flush_WhenOlderBatchArrivesAfterCatchUp_ShouldKeepNewerState() throws Exception {
+        when(availabilityIndex.version()).thenReturn(100L, 101L);
+        availabilityFeedService.flush();
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        // Na versão 101 o livro 1 ficou indisponível; na 102, que o assinante recebe no catch-up, voltou a ficar disponível
+        when(availabilityIndex.changesSince(99L)).thenReturn(changes(102L, RoaringBitmap.bitmapOf(1), new RoaringBitmap()));
+        when(availabilityIndex.changesSince(100L)).thenAnswer(invocation -> {
+            availabilityFeedService.subscribe(99L, emitter);
+            return changes(101L, new RoaringBitmap(), RoaringBitmap.bitmapOf(1));
+        });
+
+        availabilityFeedService.flush();
+
+        assertEquals("id:102\nevent:availability\ndata:{\"version\":102,\"available\":[1],\"unavailable\":[]}\n\n", emitter.next());
+        assertNull(emitter.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,169 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.BookImportResultDTO;
+import com.biblioteca.entity.Book;
+import com.biblioteca.entity.BookStatus;
+import com.biblioteca.repository.BookRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookImportService.class)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve importar os livros do CSV derivando o status pela quantidade disponível")
+    void importCsv_ShouldInsertBooksWithDerivedStatus() throws IOException {
+        String csv = "title,author,isbn,publicationYear,totalQuantity,availableQuantity\r\n" +
+                "\"Dom Casmurro, edição \"\"especial\"\"\",Machado de Assis,978-8535910667,1899,2,2\r\n" +
+                "Memórias Póstumas,Machado de Assis,978-8535910668,,1,0\r\n";
+
+        BookImportResultDTO result = bookImportService.importCsv(stream(csv));
+
+        assertEquals(2, result.getImported());
+        assertEquals(0, result.getRejected());
+        Book special = bookRepository.findByIsbn("978-8535910667").orElseThrow();
+        assertEquals("Dom Casmurro, edição \"especial\"", special.getTitle());
+        assertEquals(1899, special.getPublicationYear());
+        assertEquals(BookStatus.DISPONIVEL, special.getStatus());
+        Book unavailable = bookRepository.findByIsbn("978-8535910668").orElseThrow();
+        assertNull(unavailable.getPublicationYear());
+        assertEquals(BookStatus.INDISPONIVEL, unavailable.getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve recusar ISBNs já cadastrados, repetidos no arquivo e registros inválidos, importando o restante")
+    void importCsv_ShouldRejectDuplicateAndInvalidRecords() throws IOException {
+        Book existing = new Book();
+        existing.setTitle("O Senhor dos Anéis");
+        existing.setAuthor("J.R.R. Tolkien");
+        existing.setIsbn("978-0618640157");
+        existing.setTotalQuantity(1);
+        existing.setAvailableQuantity(1);
+        existing.setStatus(BookStatus.DISPONIVEL);
+        entityManager.persistAndFlush(existing);
+
+        String csv = "isbn,title,author,totalQuantity,availableQuantity\n" +
+                "978-0618640157,O Senhor dos Anéis,J.R.R. Tolkien,1,1\n" +
+                "978-0000000001,O Hobbit,J.R.R. Tolkien,1,1\n" +
+                "978-0000000001,O Hobbit,J.R.R. Tolkien,1,1\n" +
+                "978-0000000002,X,Autor,1,1\n" +
+                "978-0000000003,O Silmarillion,J.R.R. Tolkien,um,1\n" +
+                "978-0000000004,Contos Inacabados,J.R.R. Tolkien,1,2\n";
+
+        BookImportResultDTO result = bookImportService.importCsv(stream(csv));
+
+        assertEquals(1, result.getImported());
+        assertEquals(5, result.getRejected());
+        assertEquals(List.of(
+                "Registro 4: O título deve ter entre 2 e 100 caracteres.",
+                "Registro 5: Valor inválido para totalQuantity: um",
+                "Registro 6: availableQuantity não pode ser maior que totalQuantity.",
+                "Registro 1: ISBN já cadastrado: 978-0618640157",
+                "Registro 3: ISBN repetido no arquivo: 978-0000000001"), result.getErrors());
+        assertTrue(bookRepository.findByIsbn("978-0000000001").isPresent());
+    }
+
+    @Test
+    @DisplayName("Deve importar uma lista JSON maior que um lote usando vários batches")
+    void importJson_WithMoreThanOneBatch_ShouldInsertAll() throws IOException {
+        int total = BookImportService.IMPORT_BATCH_SIZE + 5;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < total; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"title\":\"Livro ").append(i).append("\",\"author\":\"Autor\",\"isbn\":\"isbn-").append(i)
+                    .append("\",\"totalQuantity\":3,\"availableQuantity\":3,\"status\":\"INDISPONIVEL\"}");
+        }
+        json.append("]");
+
+        BookImportResultDTO result = bookImportService.importJson(stream(json.toString()));
+
+        assertEquals(total, result.getImported());
+        assertEquals(total, bookRepository.count());
+        assertEquals(BookStatus.DISPONIVEL, bookRepository.findByIsbn("isbn-0").orElseThrow().getStatus());
+    }
+
+    @Test
+    @DisplayName("Deve recusar só o registro JSON com campo de tipo errado e importar os demais lotes")
+    void importJson_WithMalformedRecord_ShouldRejectOnlyThatRecord() throws IOException {
+        int total = BookImportService.IMPORT_BATCH_SIZE + 500;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= total; i++) {
+            String quantity = i == 1200 ? "\"muitos\"" : "3";
+            String year = i == 1300 ? "{\"ano\":{\"valor\":1999}}" : "1999";
+            json.append(i == 1 ? "" : ",")
+                    .append("{\"title\":\"Livro ").append(i).append("\",\"author\":\"Autor\",\"isbn\":\"isbn-").append(i)
+                    .append("\",\"totalQuantity\":").append(quantity).append(",\"availableQuantity\":3")
+                    .append(",\"publicationYear\":").append(year).append("}");
+        }
+        json.append("]");
+
+        BookImportResultDTO result = bookImportService.importJson(stream(json.toString()));
+
+        assertEquals(total - 2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of("Registro 1200: Valor inválido para totalQuantity",
+                "Registro 1300: Valor inválido para publicationYear"), result.getErrors());
+        assertEquals(total - 2, bookRepository.count());
+        assertTrue(bookRepository.findByIsbn("isbn-1201").isPresent());
+        assertTrue(bookRepository.findByIsbn("isbn-1200").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve informar o que já foi importado quando o JSON quebra no meio do arquivo")
+    void importJson_WithBrokenJson_ShouldReportImportedRecords() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= BookImportService.IMPORT_BATCH_SIZE + 1; i++) {
+            json.append("{\"title\":\"Livro ").append(i).append("\",\"author\":\"Autor\",\"isbn\":\"isbn-").append(i)
+                    .append("\",\"totalQuantity\":3,\"availableQuantity\":3},");
+        }
+        json.append("{\"title\":\"Livro\" \"author\"");
+
+        BookImportResultDTO result = bookImportService.importJson(stream(json.toString()));
+
+        assertEquals(BookImportService.IMPORT_BATCH_SIZE + 1, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Registro " + (BookImportService.IMPORT_BATCH_SIZE + 2) + ": Arquivo JSON inválido"));
+        assertEquals(BookImportService.IMPORT_BATCH_SIZE + 1, bookRepository.count());
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando falta uma coluna obrigatória no CSV")
+    void importCsv_WithoutRequiredColumn_ShouldThrowException() {
+        assertThrows(IllegalStateException.class,
+                () -> bookImportService.importCsv(stream("title,author,totalQuantity,availableQuantity\n")));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
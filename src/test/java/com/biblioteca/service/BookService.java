@@ -1,19 +1,38 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.EntityCacheEvictor;
 import com.biblioteca.entity.Book;
 import com.biblioteca.entity.BookStatus;
+import com.biblioteca.event.BookChangedEvent;
 import com.biblioteca.exception.ResourceNotFoundException;
+import com.biblioteca.dto.BookSuggestionDTO;
+import com.biblioteca.dto.BookSummaryDTO;
+import com.biblioteca.index.AutocompleteIndex;
+import com.biblioteca.index.BookSearchIndex;
+import com.biblioteca.index.IsbnIndex;
 import com.biblioteca.repository.BookRepository;
+import com.biblioteca.repository.LoanRepository;
+import com.biblioteca.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,6 +47,27 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private IsbnIndex isbnIndex;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private AutocompleteIndex autocompleteIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityCacheEvictor entityCacheEvictor;
+
     private Book book;
 
     @BeforeEach
@@ -51,19 +91,24 @@ class BookServiceTest {
         assertNotNull(savedBook);
         assertEquals(BookStatus.DISPONIVEL, savedBook.getStatus());
         verify(bookRepository, times(1)).save(any(Book.class));
+        verify(eventPublisher, times(1)).publishEvent(
+                BookChangedEvent.created(1L, "978-0618640157", "O Senhor dos Anéis", "J.R.R. Tolkien", BookStatus.DISPONIVEL));
     }
 
     @Test
-    @DisplayName("Deve buscar e retornar todos os livros")
-    void findAllBooks_Success() {
-
-        when(bookRepository.findAll()).thenReturn(List.of(book));
-
-        List<Book> result = bookService.findAllBooks();
-
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(bookRepository, times(1)).findAll();
+    @DisplayName("Deve paginar o catálogo ordenando por título e desempatando pelo id")
+    void findBooks_WithoutSort_ShouldUseDefaultStableSort() {
+        BookSummaryDTO summary = new BookSummaryDTO(1L, "O Senhor dos Anéis", "J.R.R. Tolkien", "978-0618640157",
+                1954, 5, 5, BookStatus.DISPONIVEL, 0L);
+        when(bookRepository.findCatalog(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary)));
+
+        Page<BookSummaryDTO> result = bookService.findBooks(BookStatus.DISPONIVEL, "J.R.R. Tolkien", null, null, PageRequest.of(2, 10));
+
+        assertEquals(List.of(summary), result.getContent());
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookRepository).findCatalog(any(Specification.class), pageable.capture());
+        assertEquals(PageRequest.of(2, 10, Sort.by("title", "id")), pageable.getValue());
     }
 
     @Test
@@ -129,18 +174,34 @@ class BookServiceTest {
     @Test
     @DisplayName("Deve deletar um livro com sucesso")
     void deleteBook_Success() {
-        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.findIsbnById(1L)).thenReturn(Optional.of("978-0618640157"));
         doNothing().when(bookRepository).deleteById(1L);
 
         bookService.deleteBook(1L);
 
         verify(bookRepository, times(1)).deleteById(1L);
+        verify(eventPublisher, times(1)).publishEvent(
+                BookChangedEvent.deleted(1L, "978-0618640157"));
+        verify(userRepository, never()).releaseLoanSlots(anyMap());
+    }
+
+    @Test
+    @DisplayName("Deve liberar os slots dos empréstimos em aberto removidos junto com o livro")
+    void deleteBook_WithOpenLoans_ShouldReleaseLoanSlots() {
+        when(bookRepository.findIsbnById(1L)).thenReturn(Optional.of("978-0618640157"));
+        when(loanRepository.countOpenLoansByUser(1L)).thenReturn(List.of(new Object[]{1L, 2L}, new Object[]{2L, 1L}));
+
+        bookService.deleteBook(1L);
+
+        verify(bookRepository, times(1)).deleteById(1L);
+        verify(userRepository, times(1)).releaseLoanSlots(Map.of(1L, 2, 2L, 1));
+        verify(entityCacheEvictor, times(1)).evictUsers(Set.of(1L, 2L));
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao tentar deletar um livro que não existe")
     void deleteBook_WhenBookNotFound_ShouldThrowException() {
-        when(bookRepository.existsById(99L)).thenReturn(false);
+        when(bookRepository.findIsbnById(99L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             bookService.deleteBook(99L);
@@ -150,16 +211,62 @@ class BookServiceTest {
     }
 
     @Test
-    @DisplayName("Deve retornar uma lista de livros")
-    void findAllBooks_ShouldReturnListOfBooks() {
-        when(bookRepository.findAll()).thenReturn(List.of(book));
+    @DisplayName("Deve manter a ordenação pedida e acrescentar o id como desempate")
+    void findBooks_WithSort_ShouldAppendIdTiebreaker() {
+        when(bookRepository.findCatalog(any(Specification.class), any(Pageable.class))).thenReturn(Page.empty());
 
-        List<Book> result = bookService.findAllBooks();
+        bookService.findBooks(null, null, 1900, 1950, PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "publicationYear")));
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("O Senhor dos Anéis", result.get(0).getTitle());
-        verify(bookRepository, times(1)).findAll();
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookRepository).findCatalog(any(Specification.class), pageable.capture());
+        assertEquals(Sort.by(Sort.Order.desc("publicationYear"), Sort.Order.asc("id")), pageable.getValue().getSort());
     }
-}
 
+    @Test
+    @DisplayName("Deve recusar ordenação por campo fora do catálogo e faixa de anos invertida")
+    void findBooks_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(IllegalStateException.class, () ->
+                bookService.findBooks(null, null, null, null, PageRequest.of(0, 20, Sort.by("loans"))));
+        assertThrows(IllegalStateException.class, () ->
+                bookService.findBooks(null, null, 1950, 1900, PageRequest.of(0, 20)));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    @DisplayName("Deve devolver os livros na ordem de relevância do índice de busca")
+    void searchBooks_ShouldKeepIndexOrder() {
+        Book other = new Book();
+        other.setId(2L);
+        other.setTitle("O Hobbit");
+        when(bookSearchIndex.search("tolkien", 0, 10))
+                .thenReturn(new BookSearchIndex.SearchHits(List.of(2L, 1L), 12));
+        when(bookRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(book, other));
+
+        Page<Book> result = bookService.searchBooks("tolkien", PageRequest.of(0, 10));
+
+        assertEquals(List.of(other, book), result.getContent());
+        assertEquals(12, result.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco quando a busca não encontra livros")
+    void searchBooks_WhenNothingMatches_ShouldNotQueryDatabase() {
+        when(bookSearchIndex.search("inexistente", 0, 10)).thenReturn(new BookSearchIndex.SearchHits(List.of(), 0));
+
+        Page<Book> result = bookService.searchBooks("inexistente", PageRequest.of(0, 10));
+
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Deve responder o autocompletar pelo índice em memória, sem consultar o banco")
+    void suggestBooks_ShouldUseAutocompleteIndex() {
+        List<BookSuggestionDTO> suggestions = List.of(
+                new BookSuggestionDTO("O Senhor dos Anéis", BookSuggestionDTO.Field.TITLE, 1L, 42));
+        when(autocompleteIndex.suggest("senhor", 5)).thenReturn(suggestions);
+
+        assertEquals(suggestions, bookService.suggestBooks("senhor", 5));
+        verifyNoInteractions(bookRepository);
+    }
+}
@@ -0,0 +1,130 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.ExportFormat;
+import com.biblioteca.entity.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Loan activeLoan;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setName("Carlos Santana");
+        user.setEmail("carlos@biblioteca.com");
+        user.setCpf("12345678900");
+        entityManager.persist(user);
+
+        Book book = new Book();
+        book.setTitle("Dom Casmurro, edição \"especial\"");
+        book.setAuthor("Machado de Assis");
+        book.setIsbn("978-8535910667");
+        book.setTotalQuantity(2);
+        book.setAvailableQuantity(0);
+        book.setStatus(BookStatus.INDISPONIVEL);
+        entityManager.persist(book);
+
+        activeLoan = persistLoan(user, book, LocalDate.of(2025, 3, 1), LoanStatus.ATIVO);
+        persistLoan(user, book, LocalDate.of(2025, 1, 1), LoanStatus.DEVOLVIDO);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Deve exportar um objeto JSON por linha aplicando os filtros de status e data")
+    void exportLoans_AsNdjson_ShouldApplyFilters() throws IOException {
+        String output = export(out -> exportService.exportLoans(LoanStatus.ATIVO, LocalDate.of(2025, 2, 1), null,
+                ExportFormat.NDJSON, out));
+
+        String[] lines = output.split("\n");
+        assertEquals(1, lines.length);
+        JsonNode loan = objectMapper.readTree(lines[0]);
+        assertEquals(activeLoan.getId(), loan.get("id").asLong());
+        assertEquals("Carlos Santana", loan.get("userName").asText());
+        assertEquals("2025-03-01", loan.get("loanDate").asText());
+        assertTrue(loan.get("returnDate").isNull());
+    }
+
+    @Test
+    @DisplayName("Deve exportar CSV com cabeçalho e escapar vírgulas e aspas")
+    void exportBooks_AsCsv_ShouldWriteHeaderAndEscapeValues() throws IOException {
+        String output = export(out -> exportService.exportBooks(ExportFormat.CSV, out));
+
+        String[] lines = output.split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,title,author,isbn,publicationYear,totalQuantity,availableQuantity,status", lines[0]);
+        assertTrue(lines[1].contains(",\"Dom Casmurro, edição \"\"especial\"\"\",Machado de Assis,978-8535910667,,2,0,INDISPONIVEL"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar apenas o cabeçalho do CSV quando nenhum registro atende aos filtros")
+    void exportLoans_AsCsvWithoutRows_ShouldWriteOnlyHeader() throws IOException {
+        String output = export(out -> exportService.exportLoans(LoanStatus.ATRASADO, null, null, ExportFormat.CSV, out));
+
+        assertEquals("id,bookId,bookTitle,bookIsbn,userId,userName,loanDate,expectedReturnDate,returnDate,status\r\n", output);
+    }
+
+    @Test
+    @DisplayName("Deve exportar os usuários com o contador de empréstimos ativos")
+    void exportUsers_AsNdjson_ShouldIncludeActiveLoanCount() throws IOException {
+        String output = export(out -> exportService.exportUsers(ExportFormat.NDJSON, out));
+
+        JsonNode user = objectMapper.readTree(output.trim());
+        assertEquals("carlos@biblioteca.com", user.get("email").asText());
+        assertEquals(0, user.get("activeLoanCount").asInt());
+    }
+
+    private String export(Export export) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Loan persistLoan(Users user, Book book, LocalDate loanDate, LoanStatus status) {
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setBook(book);
+        loan.setLoanDate(loanDate);
+        loan.setExpectedReturnDate(loanDate.plusDays(14));
+        loan.setStatus(status);
+        return entityManager.persist(loan);
+    }
+
+    private interface Export {
+        void writeTo(ByteArrayOutputStream out) throws IOException;
+    }
+}
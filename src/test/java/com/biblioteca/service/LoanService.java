@@ -1,25 +1,42 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.EntityCacheEvictor;
+import com.biblioteca.dto.CursorPageDTO;
+import com.biblioteca.dto.LoanBatchItemResultDTO;
+import com.biblioteca.dto.LoanBatchRequestDTO;
+import com.biblioteca.dto.LoanReturnBatchRequestDTO;
 import com.biblioteca.dto.LoanRequestDTO;
 import com.biblioteca.dto.LoanResponseDTO;
 import com.biblioteca.entity.*;
+import com.biblioteca.event.LoanChangedEvent;
+import com.biblioteca.exception.BusinessError;
+import com.biblioteca.exception.BusinessRuleException;
 import com.biblioteca.exception.ResourceNotFoundException;
 import com.biblioteca.repository.BookRepository;
 import com.biblioteca.repository.LoanRepository;
 import com.biblioteca.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,12 +51,21 @@ class LoanServiceTest {
     private UserRepository userRepository;
     @Mock
     private BookRepository bookRepository;
+    @Mock
+    private UserService userService;
+    @Mock
+    private EntityCacheEvictor entityCacheEvictor;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
 
     private Users activeUser;
     private Book availableBook;
     private LoanRequestDTO loanRequestDTO;
 
     private Loan loan;
+    private LoanResponseDTO loanResponseDTO;
 
 
     @BeforeEach
@@ -64,14 +90,18 @@ class LoanServiceTest {
         loan.setStatus(LoanStatus.ATIVO);
         loan.setBook(availableBook);
         loan.setUser(activeUser);
+
+        loanResponseDTO = new LoanResponseDTO(1L, 1L, "O Senhor dos Anéis", 1L, "Carlos Santana",
+                LocalDate.now(), LocalDate.now().plusDays(14), LoanStatus.ATIVO);
     }
 
     @Test
     @DisplayName("Deve criar um empréstimo e retornar um DTO com sucesso")
     void createLoan_Success() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
-        when(loanRepository.countByUserAndStatus(activeUser, LoanStatus.ATIVO)).thenReturn(0);
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopy(1L)).thenReturn(1);
+        when(bookRepository.getReferenceById(1L)).thenReturn(availableBook);
         when(loanRepository.save(any(Loan.class))).thenReturn(loan);
 
         LoanResponseDTO createdLoanDTO = loanService.createLoan(loanRequestDTO);
@@ -81,88 +111,298 @@ class LoanServiceTest {
 
         assertEquals(activeUser.getName(), createdLoanDTO.getUserName());
         assertEquals(availableBook.getTitle(), createdLoanDTO.getBookTitle());
-        assertEquals(4, availableBook.getAvailableQuantity());
 
-        verify(bookRepository, times(1)).save(availableBook);
+        verify(bookRepository, times(1)).reserveCopy(1L);
+        verify(bookRepository, never()).save(any(Book.class));
         verify(loanRepository, times(1)).save(any(Loan.class));
+        verify(entityCacheEvictor, times(1)).evictBooks(List.of(1L));
+        verify(entityCacheEvictor, times(1)).evictUsers(List.of(1L));
+        verify(eventPublisher, times(1)).publishEvent(
+                new LoanChangedEvent(LoanChangedEvent.Type.CREATED, loan.getId(), 1L, 1L));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando a reserva condicional não consegue pegar uma cópia")
+    void createLoan_WhenNoCopyCanBeReserved_ShouldThrowException() {
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
+            loanService.createLoan(loanRequestDTO);
+        });
+
+        assertEquals(BusinessError.BOOK_UNAVAILABLE, exception.getError());
+        assertEquals("Livro não está disponível para empréstimo.", exception.getMessage());
+        assertEquals(1, meterRegistry.counter(LoanService.REJECTED_METRIC,
+                "operation", "createLoan", "reason", "book_unavailable").count());
+        verify(loanRepository, never()).save(any(Loan.class));
     }
 
     @Test
-    @DisplayName("Deve definir o status do livro como INDISPONIVEL ao emprestar a última cópia")
-    void createLoan_WhenLastBookIsLoaned_ShouldSetBookStatusToUnavailable() {
-        availableBook.setAvailableQuantity(1);
+    @DisplayName("Deve realizar empréstimos em lote com uma única verificação de limite e um único batch de inserção")
+    void createLoans_ShouldReportResultPerItem() {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L, 2L, 3L));
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
-        when(loanRepository.countByUserAndStatus(activeUser, LoanStatus.ATIVO)).thenReturn(0);
-        when(loanRepository.save(any(Loan.class))).thenReturn(loan);
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopies(List.of(1L, 2L, 3L))).thenReturn(new int[]{1, 0, 0});
+        when(bookRepository.getReferenceById(1L)).thenReturn(availableBook);
+        when(bookRepository.findExistingIds(List.of(2L, 3L))).thenReturn(Set.of(2L));
+        doAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.get(0).setId(1L);
+            return null;
+        }).when(loanRepository).insertAll(anyList());
+        when(loanRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(loanResponseDTO));
+
+        List<LoanBatchItemResultDTO> results = loanService.createLoans(batchRequest);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(loanResponseDTO, results.get(0).getLoan());
+        assertEquals("Livro não está disponível para empréstimo.", results.get(1).getMessage());
+        assertEquals("Livro não encontrado com ID: 3", results.get(2).getMessage());
+        verify(userRepository, times(1)).acquireLoanSlots(1L, 1, 3);
+        verify(loanRepository, times(1)).insertAll(anyList());
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
 
-        loanService.createLoan(loanRequestDTO);
+    @Test
+    @DisplayName("Deve recusar os itens do lote que passam do limite de empréstimos ativos")
+    void createLoans_WhenLimitIsReached_ShouldRejectRemainingItems() {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L, 2L, 3L));
 
-        assertEquals(BookStatus.INDISPONIVEL, availableBook.getStatus());
-        verify(bookRepository, times(1)).save(availableBook);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
+        activeUser.setActiveLoanCount(2);
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopies(List.of(1L))).thenReturn(new int[]{0});
+        when(bookRepository.findExistingIds(List.of(1L))).thenReturn(Set.of(1L));
+        when(bookRepository.reserveCopies(List.of(2L))).thenReturn(new int[]{1});
+        when(bookRepository.getReferenceById(2L)).thenReturn(availableBook);
+        doAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.get(0).setId(1L);
+            return null;
+        }).when(loanRepository).insertAll(anyList());
+        when(loanRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(loanResponseDTO));
+
+        List<LoanBatchItemResultDTO> results = loanService.createLoans(batchRequest);
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Usuário já possui 3 empréstimos ativos. Limite excedido.", results.get(2).getMessage());
+        assertEquals(1, meterRegistry.counter(LoanService.REJECTED_METRIC,
+                "operation", "createLoans", "reason", "book_unavailable").count());
+        assertEquals(1, meterRegistry.counter(LoanService.REJECTED_METRIC,
+                "operation", "createLoans", "reason", "limit_exceeded").count());
     }
 
     @Test
-    @DisplayName("Deve definir o status do livro como DISPONIVEL ao devolver um livro que estava indisponível")
-    void returnLoan_WhenBookWasUnavailable_ShouldSetBookStatusToAvailable() {
+    @DisplayName("Deve recusar o lote inteiro quando o usuário está inativo")
+    void createLoans_WhenUserIsInactive_ShouldThrowException() {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L));
+        activeUser.setStatus(UserStatus.INATIVO);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
+
+        assertThrows(BusinessRuleException.class, () -> loanService.createLoans(batchRequest));
+
+        verify(bookRepository, never()).reserveCopies(anyList());
+    }
+
+    @Test
+    @DisplayName("Não deve consultar os empréstimos criados quando nenhuma cópia foi reservada")
+    void createLoans_WhenNothingIsReserved_ShouldNotLoadResponses() {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
+        when(bookRepository.reserveCopies(List.of(1L))).thenReturn(new int[]{0});
+        when(bookRepository.findExistingIds(List.of(1L))).thenReturn(Set.of(1L));
+
+        List<LoanBatchItemResultDTO> results = loanService.createLoans(batchRequest);
+
+        assertEquals(BusinessError.BOOK_UNAVAILABLE.getMessage(), results.get(0).getMessage());
+        verify(userRepository, never()).acquireLoanSlots(anyLong(), anyInt(), anyInt());
+        verify(loanRepository, never()).findResponsesByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve recusar o lote inteiro quando o driver não informa se a cópia foi reservada")
+    void createLoans_WhenReservationIsUnconfirmed_ShouldThrowException() {
+        LoanBatchRequestDTO batchRequest = new LoanBatchRequestDTO();
+        batchRequest.setUserId(1L);
+        batchRequest.setBookIds(List.of(1L, 2L));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
+        when(bookRepository.reserveCopies(List.of(1L, 2L))).thenReturn(new int[]{1, Statement.SUCCESS_NO_INFO});
+        when(bookRepository.getReferenceById(1L)).thenReturn(availableBook);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> loanService.createLoans(batchRequest));
+
+        assertEquals("Não foi possível confirmar a reserva do livro com ID: 2", exception.getMessage());
+        verify(userRepository, never()).acquireLoanSlots(anyLong(), anyInt(), anyInt());
+        verify(loanRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Deve devolver empréstimos em lote agrupando as cópias por livro")
+    void returnLoans_ShouldReleaseCopiesGroupedByBook() {
+        Loan secondLoan = new Loan();
+        secondLoan.setId(2L);
+        secondLoan.setStatus(LoanStatus.ATIVO);
+        secondLoan.setBook(availableBook);
+        secondLoan.setUser(activeUser);
+        Loan returnedLoan = new Loan();
+        returnedLoan.setId(3L);
+        returnedLoan.setStatus(LoanStatus.DEVOLVIDO);
+        returnedLoan.setBook(availableBook);
+        returnedLoan.setUser(activeUser);
+
+        LoanReturnBatchRequestDTO batchRequest = new LoanReturnBatchRequestDTO();
+        batchRequest.setLoanIds(List.of(1L, 3L, 99L));
+        batchRequest.setIsbns(List.of("978-0618640157", "978-0000000000"));
+
+        when(loanRepository.findOpenLoanIdsByIsbn(Set.of("978-0618640157", "978-0000000000")))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "978-0618640157"}, new Object[]{2L, "978-0618640157"}));
+        when(loanRepository.findAllByIdForUpdate(Set.of(1L, 2L, 3L, 99L))).thenReturn(List.of(loan, secondLoan, returnedLoan));
+        LoanResponseDTO secondResponse = new LoanResponseDTO();
+        secondResponse.setId(2L);
+        when(loanRepository.findResponsesByIds(Set.of(1L, 2L))).thenReturn(List.of(loanResponseDTO, secondResponse));
+
+        List<LoanBatchItemResultDTO> results = loanService.returnLoans(batchRequest);
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Este empréstimo já foi devolvido.", results.get(1).getMessage());
+        assertEquals("Empréstimo não encontrado com ID: 99", results.get(2).getMessage());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(2L, results.get(3).getLoan().getId());
+        assertFalse(results.get(4).isSuccess());
+        verify(loanRepository, times(1)).markAllReturned(eq(Set.of(1L, 2L)), any(LocalDate.class));
+        verify(bookRepository, times(1)).releaseCopies(Map.of(1L, 2));
+        verify(userRepository, times(1)).releaseLoanSlots(Map.of(1L, 2));
+        verify(bookRepository, never()).releaseCopy(anyLong());
+    }
+
+    @Test
+    @DisplayName("Não deve executar atualizações quando nenhum empréstimo do lote pode ser devolvido")
+    void returnLoans_WhenNothingToReturn_ShouldNotUpdate() {
+        loan.setStatus(LoanStatus.DEVOLVIDO);
+        LoanReturnBatchRequestDTO batchRequest = new LoanReturnBatchRequestDTO();
+        batchRequest.setLoanIds(List.of(1L, 1L));
+        when(loanRepository.findAllByIdForUpdate(Set.of(1L))).thenReturn(List.of(loan));
+
+        List<LoanBatchItemResultDTO> results = loanService.returnLoans(batchRequest);
+
+        assertTrue(results.stream().noneMatch(LoanBatchItemResultDTO::isSuccess));
+        verify(loanRepository, never()).markAllReturned(anyCollection(), any(LocalDate.class));
+        verify(bookRepository, never()).releaseCopies(anyMap());
+        verify(userRepository, never()).releaseLoanSlots(anyMap());
+    }
+
+    @Test
+    @DisplayName("Deve devolver a cópia com o UPDATE condicional ao devolver um livro que estava indisponível")
+    void returnLoan_WhenBookWasUnavailable_ShouldReleaseCopy() {
         availableBook.setAvailableQuantity(0);
         availableBook.setStatus(BookStatus.INDISPONIVEL);
         loan.setStatus(LoanStatus.ATIVO);
         loan.setBook(availableBook);
 
         when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
-        when(loanRepository.save(any(Loan.class))).thenReturn(loan);
+        when(loanRepository.markReturned(eq(1L), any(LocalDate.class))).thenReturn(1);
+        when(loanRepository.findResponseById(1L)).thenReturn(Optional.of(loanResponseDTO));
 
         loanService.returnLoan(1L);
 
-        assertEquals(BookStatus.DISPONIVEL, availableBook.getStatus());
-        verify(bookRepository, times(1)).save(availableBook);
+        verify(bookRepository, times(1)).releaseCopy(1L);
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(entityCacheEvictor, times(1)).evictBooks(List.of(1L));
     }
 
 
 
     @Test
-    @DisplayName("Deve buscar e retornar todos os empréstimos")
-    void findAllLoans_Success() {
-        when(loanRepository.findAll()).thenReturn(List.of(loan));
+    @DisplayName("Deve buscar uma página de empréstimos e retornar o cursor da próxima página")
+    void findLoansPage_WhenPageIsFull_ShouldReturnNextCursor() {
+        when(loanRepository.findResponsePageAfter(0L, null, null, null, Limit.of(1))).thenReturn(List.of(loanResponseDTO));
 
-        List<LoanResponseDTO> result = loanService.findAllLoans();
+        CursorPageDTO<LoanResponseDTO> result = loanService.findLoansPage(null, null, null, null, 1);
 
         assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(1, result.getContent().size());
+        assertEquals(loan.getId(), result.getNextCursor());
+        verify(loanRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Deve retornar cursor nulo quando a última página não está cheia")
+    void findLoansPage_WhenLastPage_ShouldReturnNullCursor() {
+        when(loanRepository.findResponsePageAfter(1L, LoanStatus.ATIVO, null, null, Limit.of(20))).thenReturn(List.of(loanResponseDTO));
 
-        verify(loanRepository, times(1)).findAll();
+        CursorPageDTO<LoanResponseDTO> result = loanService.findLoansPage(1L, LoanStatus.ATIVO, null, null, 20);
+
+        assertEquals(1, result.getSize());
+        assertNull(result.getNextCursor());
     }
 
     @Test
     @DisplayName("Deve devolver um empréstimo com sucesso e retornar um DTO")
     void returnLoan_Success() {
-        int initialQuantity = availableBook.getAvailableQuantity();
+        loanResponseDTO.setStatus(LoanStatus.DEVOLVIDO);
         when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
-        when(loanRepository.save(any(Loan.class))).thenReturn(loan);
+        when(loanRepository.markReturned(eq(1L), any(LocalDate.class))).thenReturn(1);
+        when(loanRepository.findResponseById(1L)).thenReturn(Optional.of(loanResponseDTO));
 
         LoanResponseDTO returnedLoanDTO = loanService.returnLoan(1L);
 
         assertNotNull(returnedLoanDTO);
         assertEquals(LoanStatus.DEVOLVIDO, returnedLoanDTO.getStatus());
-        assertEquals(initialQuantity + 1, availableBook.getAvailableQuantity());
-        verify(loanRepository, times(1)).save(loan);
-        verify(bookRepository, times(1)).save(availableBook);
+        verify(loanRepository, times(1)).markReturned(eq(1L), any(LocalDate.class));
+        verify(bookRepository, times(1)).releaseCopy(1L);
+        verify(userRepository, times(1)).releaseLoanSlots(Map.of(1L, 1));
+        verify(eventPublisher, times(1)).publishEvent(
+                new LoanChangedEvent(LoanChangedEvent.Type.RETURNED, 1L, 1L, 1L));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando outra requisição devolveu o empréstimo primeiro")
+    void returnLoan_WhenReturnedConcurrently_ShouldThrowException() {
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(loanRepository.markReturned(eq(1L), any(LocalDate.class))).thenReturn(0);
+
+        assertThrows(BusinessRuleException.class, () -> {
+            loanService.returnLoan(1L);
+        });
+
+        verify(bookRepository, never()).releaseCopy(anyLong());
+        verify(userRepository, never()).releaseLoanSlots(anyMap());
     }
 
     @Test
     @DisplayName("Deve lançar exceção ao tentar criar empréstimo quando o limite de empréstimos foi atingido")
     void createLoan_WhenLoanLimitExceeded_ShouldThrowException() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
-        when(loanRepository.countByUserAndStatus(activeUser, LoanStatus.ATIVO)).thenReturn(3);
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(false);
 
-        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
             loanService.createLoan(loanRequestDTO);
         });
 
+        assertEquals(BusinessError.LIMIT_EXCEEDED, exception.getError());
         assertEquals("Usuário já possui 3 empréstimos ativos. Limite excedido.", exception.getMessage());
+        assertEquals(1, meterRegistry.counter(LoanService.REJECTED_METRIC,
+                "operation", "createLoan", "reason", "limit_exceeded").count());
+        verify(bookRepository, never()).reserveCopy(anyLong());
         verify(loanRepository, never()).save(any(Loan.class));
     }
 
@@ -170,21 +410,23 @@ class LoanServiceTest {
     @DisplayName("Deve lançar exceção ao tentar criar empréstimo com usuário inativo")
     void createLoan_WhenUserIsInactive_ShouldThrowException() {
         activeUser.setStatus(UserStatus.INATIVO);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
 
-        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
             loanService.createLoan(loanRequestDTO);
         });
 
+        assertEquals(BusinessError.INACTIVE_USER, exception.getError());
         assertEquals("Usuário não está ativo e não pode realizar empréstimos.", exception.getMessage());
+        assertEquals(1, meterRegistry.counter(LoanService.REJECTED_METRIC,
+                "operation", "createLoan", "reason", "inactive_user").count());
         verify(loanRepository, never()).save(any(Loan.class));
     }
 
     @Test
     @DisplayName("Deve lançar ResourceNotFoundException quando o usuário não existe")
     void createLoan_WhenUserNotFound_ShouldThrowException() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userService.findUserById(1L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             loanService.createLoan(loanRequestDTO);
@@ -207,16 +449,21 @@ class LoanServiceTest {
         loan.setStatus(LoanStatus.DEVOLVIDO);
         when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
 
-        assertThrows(IllegalStateException.class, () -> {
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
             loanService.returnLoan(1L);
         });
+
+        assertEquals(BusinessError.LOAN_ALREADY_RETURNED, exception.getError());
+        assertEquals(0, exception.getStackTrace().length);
+
+        verify(loanRepository, never()).markReturned(anyLong(), any(LocalDate.class));
     }
 
     @Test
     @DisplayName("Deve buscar e retornar os empréstimos de um usuário existente")
     void findLoansByUserId_Success() {
         when(userRepository.existsById(1L)).thenReturn(true);
-        when(loanRepository.findByUserId(1L)).thenReturn(List.of(loan));
+        when(loanRepository.findResponsesByUserId(1L)).thenReturn(List.of(loanResponseDTO));
 
         List<LoanResponseDTO> result = loanService.findLoansByUserId(1L);
 
@@ -224,7 +471,7 @@ class LoanServiceTest {
         assertEquals(1, result.size());
         assertEquals(loan.getId(), result.get(0).getId());
         verify(userRepository, times(1)).existsById(1L);
-        verify(loanRepository, times(1)).findByUserId(1L);
+        verify(loanRepository, times(1)).findResponsesByUserId(1L);
     }
 
     @Test
@@ -236,14 +483,16 @@ class LoanServiceTest {
             loanService.findLoansByUserId(99L);
         });
 
-        verify(loanRepository, never()).findByUserId(anyLong());
+        verify(loanRepository, never()).findResponsesByUserId(anyLong());
     }
 
     @Test
     @DisplayName("Deve lançar ResourceNotFoundException quando o livro não existe")
     void createLoan_WhenBookNotFound_ShouldThrowException() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(false);
 
         assertThrows(ResourceNotFoundException.class, () -> {
             loanService.createLoan(loanRequestDTO);
@@ -256,10 +505,12 @@ class LoanServiceTest {
         availableBook.setStatus(BookStatus.INDISPONIVEL);
         availableBook.setAvailableQuantity(5);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
 
-        assertThrows(IllegalStateException.class, () -> {
+        assertThrows(BusinessRuleException.class, () -> {
             loanService.createLoan(loanRequestDTO);
         });
     }
@@ -270,10 +521,12 @@ class LoanServiceTest {
         availableBook.setStatus(BookStatus.DISPONIVEL);
         availableBook.setAvailableQuantity(0);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(activeUser));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(availableBook));
+        when(userService.findUserById(1L)).thenReturn(Optional.of(activeUser));
+        when(userRepository.acquireLoanSlots(1L, 1, 3)).thenReturn(true);
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
 
-        assertThrows(IllegalStateException.class, () -> {
+        assertThrows(BusinessRuleException.class, () -> {
             loanService.createLoan(loanRequestDTO);
         });
     }
@@ -0,0 +1,97 @@
+package com.biblioteca.service;
+
+import com.biblioteca.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueLoanServiceTest {
+
+    @InjectMocks
+    private OverdueLoanService overdueLoanService;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+
+    private final LocalDate today = LocalDate.of(2025, 3, 10);
+
+    @BeforeEach
+    void setUp() {
+        // Executa o callback direto, como se cada lote tivesse a sua transação
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("Deve marcar os empréstimos vencidos em lotes até não restar nenhum")
+    void markOverdueLoans_ShouldProcessChunksUntilEmpty() {
+        // Arrange
+        when(loanRepository.findOverdueIds(today, Limit.of(500)))
+                .thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+        when(loanRepository.markOverdue(List.of(1L, 2L))).thenReturn(2);
+        when(loanRepository.markOverdue(List.of(3L))).thenReturn(1);
+
+        // Act
+        int marked = overdueLoanService.markOverdueLoans(today);
+
+        // Assert
+        assertEquals(3, marked);
+        verify(transactionTemplate, times(3)).execute(any());
+        assertEquals(3.0, meterRegistry.counter(OverdueLoanService.MARKED_METRIC).count());
+        assertEquals(1, meterRegistry.timer(OverdueLoanService.RUN_METRIC).count());
+    }
+
+    @Test
+    @DisplayName("Deve seguir para o próximo lote quando os empréstimos foram devolvidos antes do update")
+    void markOverdueLoans_WhenChunkWasReturnedMeanwhile_ShouldContinue() {
+        // Arrange
+        when(loanRepository.findOverdueIds(today, Limit.of(500)))
+                .thenReturn(List.of(1L), List.of(2L), List.of());
+        when(loanRepository.markOverdue(List.of(1L))).thenReturn(0);
+        when(loanRepository.markOverdue(List.of(2L))).thenReturn(1);
+
+        // Act
+        int marked = overdueLoanService.markOverdueLoans(today);
+
+        // Assert
+        assertEquals(1, marked);
+    }
+
+    @Test
+    @DisplayName("Não deve executar nenhum update quando não há empréstimos vencidos")
+    void markOverdueLoans_WhenNothingIsOverdue_ShouldNotUpdate() {
+        // Arrange
+        when(loanRepository.findOverdueIds(today, Limit.of(500))).thenReturn(List.of());
+
+        // Act
+        int marked = overdueLoanService.markOverdueLoans(today);
+
+        // Assert
+        assertEquals(0, marked);
+        verify(loanRepository, never()).markOverdue(any());
+        assertEquals(1, meterRegistry.timer(OverdueLoanService.RUN_METRIC).count());
+    }
+}
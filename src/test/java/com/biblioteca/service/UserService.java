@@ -1,15 +1,24 @@
 package com.biblioteca.service;
 
+import com.biblioteca.config.EntityCacheEvictor;
+import com.biblioteca.dto.UserSummaryDTO;
 import com.biblioteca.entity.Users;
 import com.biblioteca.exception.ResourceNotFoundException;
+import com.biblioteca.repository.LoanRepository;
 import com.biblioteca.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +36,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private EntityCacheEvictor entityCacheEvictor;
+
     private Users user;
 
     @BeforeEach
@@ -54,16 +69,36 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("Deve buscar e retornar todos os usuários")
-    void findAllUsers_Success() {
-
-        when(userRepository.findAll()).thenReturn(List.of(user));
-
-        List<Users> result = userService.findAllUsers();
+    @DisplayName("Deve paginar os usuários por nome e preencher as contagens com uma única consulta agrupada")
+    void findUsers_ShouldSummarizeLoanCounts() {
+        Users withoutLoans = new Users();
+        withoutLoans.setId(2L);
+        withoutLoans.setName("Cecília Meireles");
+        when(userRepository.findAll(any(Pageable.class))).thenAnswer(invocation ->
+                new PageImpl<>(List.of(user, withoutLoans), invocation.getArgument(0), 12));
+        when(loanRepository.countLoansByUsers(List.of(1L, 2L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 7L, 2L, 1L}));
+
+        Page<UserSummaryDTO> result = userService.findUsers(PageRequest.of(0, 2));
+
+        assertEquals(12, result.getTotalElements());
+        UserSummaryDTO summary = result.getContent().get(0);
+        assertEquals("Carlos Santana", summary.getName());
+        assertEquals(2, summary.getActiveLoans());
+        assertEquals(1, summary.getOverdueLoans());
+        assertEquals(7, summary.getTotalLoans());
+        assertEquals(0, result.getContent().get(1).getTotalLoans());
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findAll(pageable.capture());
+        assertEquals(Sort.by("name", "id"), pageable.getValue().getSort());
+        verify(loanRepository, times(1)).countLoansByUsers(any());
+    }
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(userRepository, times(1)).findAll();
+    @Test
+    @DisplayName("Deve recusar ordenação dos usuários por campo fora da lista")
+    void findUsers_WithInvalidSort_ShouldThrowException() {
+        assertThrows(IllegalStateException.class, () -> userService.findUsers(PageRequest.of(0, 20, Sort.by("cpf"))));
+        verifyNoInteractions(userRepository, loanRepository);
     }
 
     @Test
@@ -132,4 +167,20 @@ class UserServiceTest {
 
         verify(userRepository, never()).deleteById(anyLong());
     }
+
+    @Test
+    @DisplayName("Deve recalcular apenas os contadores de empréstimos ativos divergentes")
+    void reconcileActiveLoanCounts_ShouldRecountMismatchedUsers() {
+        // Arrange
+        when(userRepository.findActiveLoanCountMismatches()).thenReturn(List.of(new long[]{1L, 0L, 2L}));
+        when(userRepository.recountActiveLoans(List.of(1L))).thenReturn(1);
+
+        // Act
+        int fixed = userService.reconcileActiveLoanCounts();
+
+        // Assert
+        assertEquals(1, fixed);
+        verify(userRepository, times(1)).recountActiveLoans(List.of(1L));
+        verify(entityCacheEvictor, times(1)).evictUsers(List.of(1L));
+    }
 }